@@ -6,7 +6,7 @@ import scala.collection.JavaConversions._
 import play.{Play, Logger}
 import collection.mutable.ListBuffer
 import com.wordnik.swagger.core._
-import javax.xml.bind.JAXBContext
+import javax.xml.bind.{JAXBContext, Marshaller}
 import java.io.StringWriter
 
 /**
@@ -34,35 +34,65 @@ object ApiHelpInventory {
 
   private val filterOutTopLevelApi = true
 
-  def getResourceNames: java.util.List[String] = getResourceMap.keys.toList
+  def getResourceNames: java.util.List[String] = getSnapshot.getResourceNames
 
   private val jaxbContext = JAXBContext.newInstance(classOf[Documentation]);
+  // marshallers aren't thread safe, so each thread keeps its own
+  private val marshallers = new ThreadLocal[Marshaller] {
+    override def initialValue(): Marshaller = jaxbContext.createMarshaller()
+  }
   private val jacksonObjectMapper = new ObjectMapper();
 
+  @volatile private var snapshot: ApiHelpSnapshot = null
+
+  /**
+    * Read the documentation of all resources, help requests are answered from it afterwards.
+    * The api filter is instantiated once here; it decides per caller, so it's applied when help is requested.
+    */
+  def load(): ApiHelpSnapshot = synchronized {
+    controllerClasses.clear()
+    resourceMap.clear()
+
+    // the filter HelpApi instantiates is the one root resources are filtered with as well
+    val helpApi = new HelpApi(apiFilterClassName)
+    val resources = for ((resourceName, clazz) <- getResourceMap.toMap) yield (resourceName, readResource(clazz))
+    val resourceNames: java.util.List[String] = getResourceMap.keys.toList
+
+    snapshot = new ApiHelpSnapshot(resourceNames, getRootEndPoints, resources, helpApi)
+    Logger.info("Swagger: Loaded help for " + resources.size + " resources")
+    snapshot
+  }
+
+  /**
+    * The loaded documentation, loading it when that didn't happen yet
+    */
+  def getSnapshot: ApiHelpSnapshot = {
+    val current = snapshot
+    if (current != null) current else synchronized {
+      if (snapshot == null) load() else snapshot
+    }
+  }
+
   /**
     * Get a list of all top level resources
     */
-  private def getRootResources(format: String) = {
-    var apiFilter: ApiAuthorizationFilter = null
-    if(null != apiFilterClassName) {
-      try {
-        apiFilter = SwaggerContext.loadClass(apiFilterClassName).newInstance.asInstanceOf[ApiAuthorizationFilter]
-      }
-      catch {
-        case e: ClassNotFoundException => Logger.error("Unable to resolve apiFilter class " + apiFilterClassName);
-        case e: ClassCastException => Logger.error("Unable to cast to apiFilter class " + apiFilterClassName);
-      }
+  private def getRootEndPoints: List[DocumentationEndPoint] = {
+    getControllerClasses.toList.flatMap { clazz =>
+      val apiAnnotation = clazz.getAnnotation(classOf[Api])
+      if (null != apiAnnotation) List(new DocumentationEndPoint(apiAnnotation.value + ".{format}", apiAnnotation.description()))
+      else Nil
     }
+  }
 
+  /**
+    * Root documentation listing the given end points the filter lets through
+    */
+  private[swagger] def getRootResources(endPoints: List[DocumentationEndPoint], apiFilter: ApiAuthorizationFilter) = {
     val allApiDoc = new Documentation
-    for (clazz <- getControllerClasses) {
-      val apiAnnotation = clazz.getAnnotation(classOf[Api])
-      if(null != apiAnnotation){
-        val api = new DocumentationEndPoint(apiAnnotation.value + ".{format}", apiAnnotation.description())
-        if(!isApiAdded(allApiDoc, api)) {
-          if (null == apiFilter || apiFilter.authorizeResource(api.path, null, null)){
-            allApiDoc.addApi(api)
-          }
+    for (api <- endPoints) {
+      if(!isApiAdded(allApiDoc, api)) {
+        if (null == apiFilter || apiFilter.authorizeResource(api.path, null, null)){
+          allApiDoc.addApi(api)
         }
       }
     }
@@ -75,51 +105,38 @@ object ApiHelpInventory {
   }
 
   /**
-    * Get detailed API/models for a given resource
+    * Read detailed API/models for a given resource, unfiltered
     */
-  private def getResource(resourceName: String) = {
-    getResourceMap.get(resourceName) match {
-      case Some(clazz) => {
-        val currentApiEndPoint = clazz.getAnnotation(classOf[Api])
-        val currentApiPath = if (currentApiEndPoint != null && filterOutTopLevelApi) currentApiEndPoint.value else null
+  private def readResource(clazz: Class[_]): ApiHelpSnapshot.Resource = {
+    val currentApiEndPoint = clazz.getAnnotation(classOf[Api])
+    val currentApiPath = if (currentApiEndPoint != null && filterOutTopLevelApi) currentApiEndPoint.value else null
 
-        val docs = new HelpApi(apiFilterClassName).filterDocs(
-          PlayApiReader.read(clazz, apiVersion, swaggerVersion, basePath, currentApiPath), null, null, currentApiPath)
+    val docs = PlayApiReader.read(clazz, apiVersion, swaggerVersion, basePath, currentApiPath)
+    ApiHelpSnapshot.Resource(currentApiPath, toJson(docs))
+  }
 
-        Option(docs)
-      }
+  def getPathHelpJson(apiPath: String): String = asString(getSnapshot.getPathJson(apiPath))
 
-      case None => None
-    }
+  def getPathHelpXml(apiPath: String): String = asString(getSnapshot.getPathXml(apiPath))
 
-  }
+  def getRootHelpJson(apiPath: String): String = asString(getSnapshot.getRootJson)
 
-  def getPathHelpJson(apiPath: String): String = {
-    getResource(apiPath) match {
-      case Some(docs) => jacksonObjectMapper.writeValueAsString(docs)
-      case None => null
-    }
-  }
+  def getRootHelpXml(apiPath: String): String = asString(getSnapshot.getRootXml)
 
-  def getPathHelpXml(apiPath: String): String = {
-    getResource(apiPath) match {
-      case Some(docs) => {
-        val stringWriter = new StringWriter()
-        jaxbContext.createMarshaller().marshal(docs, stringWriter);
-        stringWriter.toString
-      }
-      case None => null
-    }
+  private def asString(bytes: Array[Byte]): String = if (bytes == null) null else new String(bytes, "UTF-8")
+
+  private[swagger] def toJson(docs: Documentation): Array[Byte] = {
+    jacksonObjectMapper.writeValueAsString(docs).getBytes("UTF-8")
   }
 
-  def getRootHelpJson(apiPath: String): String = {
-    jacksonObjectMapper.writeValueAsString(getRootResources("json"))
+  private[swagger] def fromJson(json: Array[Byte]): Documentation = {
+    jacksonObjectMapper.readValue(json, classOf[Documentation])
   }
 
-  def getRootHelpXml(apiPath: String): String = {
-      val stringWriter = new StringWriter()
-      jaxbContext.createMarshaller().marshal(getRootResources("xml"), stringWriter);
-      stringWriter.toString
+  private[swagger] def toXml(docs: Documentation): Array[Byte] = {
+    val stringWriter = new StringWriter()
+    marshallers.get.marshal(docs, stringWriter)
+    stringWriter.toString.getBytes("UTF-8")
   }
 
 
@@ -0,0 +1,67 @@
+package play.modules.swagger
+
+import com.wordnik.swagger.core._
+
+/**
+  * Root and per resource documentation as read when it was loaded, so help requests are answered without reflection.
+  * Without a swagger.security.filter it's served as serialized then. Filters decide per caller, e.g. through
+  * Http.Request.current(), so with one every request gets the documentation filtered for it.
+  *
+  */
+class ApiHelpSnapshot(resourceNames: java.util.List[String],
+                      rootEndPoints: List[DocumentationEndPoint],
+                      resources: Map[String, ApiHelpSnapshot.Resource],
+                      helpApi: HelpApi) {
+
+  private val apiFilter: ApiAuthorizationFilter = helpApi.apiFilter
+
+  private val rootJson = if (apiFilter == null) ApiHelpInventory.toJson(root) else null
+  private val rootXml = if (apiFilter == null) ApiHelpInventory.toXml(root) else null
+
+  private val pathJson: Map[String, Array[Byte]] =
+    if (apiFilter == null) for ((apiPath, _) <- resources; docs <- resource(apiPath)) yield (apiPath, ApiHelpInventory.toJson(docs))
+    else Map.empty
+  private val pathXml: Map[String, Array[Byte]] =
+    if (apiFilter == null) for ((apiPath, _) <- resources; docs <- resource(apiPath)) yield (apiPath, ApiHelpInventory.toXml(docs))
+    else Map.empty
+
+  def getResourceNames: java.util.List[String] = resourceNames
+
+  def getRootJson: Array[Byte] = if (apiFilter == null) rootJson else ApiHelpInventory.toJson(root)
+
+  def getRootXml: Array[Byte] = if (apiFilter == null) rootXml else ApiHelpInventory.toXml(root)
+
+  /**
+    * JSON documentation of the given resource, null when there is no such resource
+    */
+  def getPathJson(apiPath: String): Array[Byte] = {
+    if (apiFilter == null) pathJson.getOrElse(apiPath, null)
+    else resource(apiPath).map(ApiHelpInventory.toJson).orNull
+  }
+
+  /**
+    * XML documentation of the given resource, null when there is no such resource
+    */
+  def getPathXml(apiPath: String): Array[Byte] = {
+    if (apiFilter == null) pathXml.getOrElse(apiPath, null)
+    else resource(apiPath).map(ApiHelpInventory.toXml).orNull
+  }
+
+  // filtering leaves the end points as they are, so the filtered root shares them
+  private def root: Documentation = ApiHelpInventory.getRootResources(rootEndPoints, apiFilter)
+
+  // HelpApi.filterDocs removes what the filter rejects from the documentation it gets, so it gets a copy
+  private def resource(apiPath: String): Option[Documentation] = {
+    resources.get(apiPath).flatMap { resource =>
+      Option(helpApi.filterDocs(ApiHelpInventory.fromJson(resource.json), null, null, resource.currentApiPath))
+    }
+  }
+}
+
+object ApiHelpSnapshot {
+
+  /**
+    * Documentation of a resource as read, serialized so every filtering starts from a fresh copy
+    */
+  case class Resource(currentApiPath: String, json: Array[Byte])
+}
@@ -6,6 +6,7 @@ import play.mvc.Http.Request;
 import play.mvc.Http.Response;
 import play.mvc.Router;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -20,7 +21,6 @@ public class SwaggerPlugin extends PlayPlugin {
     private static final String JSON = ".json";
     private static final String APPLICATION_JSON = "application/json";
     private static final String APPLICATION_XML = "application/xml";
-    private static final String UTF_8 = "UTF-8";
     private static final String XML = ".xml";
     private static final String RESOURCES_XML = "/resources.xml";
     private static final String RESOURCES_JSON = "/resources.json";
@@ -30,30 +30,18 @@ public class SwaggerPlugin extends PlayPlugin {
 //        Logger.info("Got request for " + request.path);
 
         try {
-            final List<String> resourceNames = ApiHelpInventory.getResourceNames();
-            for (String resourceName : resourceNames) {
-                if (request.path.equals(resourceName + JSON)) {
-                    response.contentType = APPLICATION_JSON;
-                    String apiHelp = ApiHelpInventory.getPathHelpJson(resourceName);
-                    response.out.write(apiHelp.getBytes(UTF_8));
-                    return true;
-                } else if (request.path.equals(resourceName + XML)) {
-                    response.contentType = APPLICATION_XML;
-                    String apiHelp = ApiHelpInventory.getPathHelpXml(resourceName);
-                    response.out.write(apiHelp.getBytes(UTF_8));
-                    return true;
-                } else if (request.path.equals(RESOURCES_JSON)) {
-                    response.contentType = APPLICATION_JSON;
-                    String apiHelp = ApiHelpInventory.getRootHelpJson(resourceName);
-                    response.out.write(apiHelp.getBytes(UTF_8));
-                    return true;
-                } else if (request.path.equals(RESOURCES_XML)) {
-                    response.contentType = APPLICATION_XML;
-                    String apiHelp = ApiHelpInventory.getRootHelpXml(resourceName);
-                    response.out.write(apiHelp.getBytes(UTF_8));
-                    return true;
-                }
-
+            final ApiHelpSnapshot snapshot = ApiHelpInventory.getSnapshot();
+            if (snapshot.getResourceNames().isEmpty()) {
+                return false;
+            }
+            if (request.path.equals(RESOURCES_JSON)) {
+                return write(response, APPLICATION_JSON, snapshot.getRootJson());
+            } else if (request.path.equals(RESOURCES_XML)) {
+                return write(response, APPLICATION_XML, snapshot.getRootXml());
+            } else if (request.path.endsWith(JSON)) {
+                return write(response, APPLICATION_JSON, snapshot.getPathJson(stripSuffix(request.path, JSON)));
+            } else if (request.path.endsWith(XML)) {
+                return write(response, APPLICATION_XML, snapshot.getPathXml(stripSuffix(request.path, XML)));
             }
         } catch (Exception e) {
             Logger.error(e, "Error in SwaggerPlugin");
@@ -62,9 +50,27 @@ public class SwaggerPlugin extends PlayPlugin {
         return false;
     }
 
+    private static String stripSuffix(String path, String suffix) {
+        return path.substring(0, path.length() - suffix.length());
+    }
+
+    /**
+     * Write the documentation of the snapshot, false when there is none for the request path
+     */
+    private static boolean write(Response response, String contentType, byte[] apiHelp) throws IOException {
+        if (apiHelp == null) {
+            return false;
+        }
+        response.contentType = contentType;
+        response.out.write(apiHelp);
+        return true;
+    }
+
     @Override
     public void onApplicationStart() {
-        final List<String> resourceNames = ApiHelpInventory.getResourceNames();
+        // documentation is read and serialized once, unfiltered, on each start including dev mode reloads;
+        // with a swagger.security.filter each request gets it filtered for its caller, see ApiHelpSnapshot
+        final List<String> resourceNames = ApiHelpInventory.load().getResourceNames();
 
         if (resourceNames.size() > 0) {
             Router.prependRoute("GET", RESOURCES_XML, "ApiHelpController.catchAll");
@@ -20,10 +20,10 @@ import play.api.mvc._
 import play.api.Logger
 import play.modules.swagger.ApiListingCache
 
-import javax.xml.bind.JAXBContext
+import javax.xml.bind.{JAXBContext, Marshaller}
 import javax.xml.bind.annotation._
 
-import java.io.StringWriter
+import java.io.ByteArrayOutputStream
 
 import com.wordnik.swagger.core.util.JsonSerializer
 import com.wordnik.swagger.model.{ApiListing, ApiListingReference, ResourceListing}
@@ -68,36 +68,33 @@ object ApiHelpController extends SwaggerBaseApiController {
     request =>
       implicit val requestHeader: RequestHeader = request
 
-      val resourceListing = getResourceListing
-
-      val responseStr = returnXml(request) match {
-        case true => toXmlString(resourceListing)
-        case false => toJsonString(resourceListing)
+      returnXml(request) match {
+        case true => returnValue(request, listingXml(ResourceListingPath)(Some(getResourceListing)).get)
+        case false => returnValue(request, toJsonString(getResourceListing))
       }
-      returnValue(request, responseStr)
   }
 
   def getResource(path: String) = Action {
     request =>
       implicit val requestHeader: RequestHeader = request
 
-      val apiListing = getApiListing(path)
-
-      val responseStr = returnXml(request) match {
-        case true => toXmlString(apiListing)
-        case false => toJsonString(apiListing)
-      }
-      Option(responseStr) match {
-        case Some(help) => returnValue(request, help)
-        case None => {
-          val msg = new ErrorResponse(500, "api listing for path " + path + " not found")
-          Logger("swagger").error(msg.message)
-          returnXml(request) match {
-            case true => {
-              new SimpleResult(header = ResponseHeader(500), body = play.api.libs.iteratee.Enumerator(toXmlString(msg).getBytes("UTF-8"))).as("application/xml")
-            }
-            case false => {
-              new SimpleResult(header = ResponseHeader(500), body = play.api.libs.iteratee.Enumerator(toJsonString(msg).getBytes("UTF-8"))).as("application/json")
+      getRenderedApiListing(request, path).getOrElse {
+        val responseStr = returnXml(request) match {
+          case true => listingXml(path)(getApiListing(path)).map(new String(_, "UTF-8")).orNull
+          case false => toJsonString(getApiListing(path))
+        }
+        Option(responseStr) match {
+          case Some(help) => returnValue(request, help)
+          case None => {
+            val msg = new ErrorResponse(500, "api listing for path " + path + " not found")
+            Logger("swagger").error(msg.message)
+            returnXml(request) match {
+              case true => {
+                new SimpleResult(header = ResponseHeader(500), body = play.api.libs.iteratee.Enumerator(toXmlString(msg).getBytes("UTF-8"))).as("application/xml")
+              }
+              case false => {
+                new SimpleResult(header = ResponseHeader(500), body = play.api.libs.iteratee.Enumerator(toJsonString(msg).getBytes("UTF-8"))).as("application/json")
+              }
             }
           }
         }
@@ -105,8 +102,50 @@ object ApiHelpController extends SwaggerBaseApiController {
   }
 }
 
+object SwaggerBaseApiController {
+  // JAXB contexts are costly to create and thread safe, so all requests share one
+  lazy val jaxbContext: JAXBContext = JAXBContext.newInstance(classOf[String], classOf[ResourceListing])
+
+  // resource paths come from the request, so only the most recently used listings keep their XML
+  private val MaxRenderedXml = 64
+
+  // XML of unfiltered listings by resource path, for the listing generation it was rendered from; guarded by itself
+  private val rendered = new java.util.LinkedHashMap[String, Array[Byte]](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[String, Array[Byte]]): Boolean = size > MaxRenderedXml
+  }
+  private var renderedGeneration = -1L
+
+  /**
+   * XML bytes of the listing of a resource path, rendered once per listing generation.
+   * A reload starts a new generation, which drops the XML rendered from the previous listings.
+   */
+  def renderedXml(generation: Long, resourcePath: String)(render: => Option[Array[Byte]]): Option[Array[Byte]] = {
+    val cached = rendered.synchronized {
+      if (renderedGeneration != generation) {
+        rendered.clear()
+        renderedGeneration = generation
+      }
+      Option(rendered.get(resourcePath))
+    }
+    cached.orElse {
+      val bytes = render
+      rendered.synchronized {
+        if (renderedGeneration == generation) {
+          bytes.foreach(rendered.put(resourcePath, _))
+        }
+      }
+      bytes
+    }
+  }
+}
+
 class SwaggerBaseApiController extends Controller {
-  protected def jaxbContext(): JAXBContext = JAXBContext.newInstance(classOf[String], classOf[ResourceListing])
+  protected def jaxbContext(): JAXBContext = SwaggerBaseApiController.jaxbContext
+
+  // marshallers aren't thread safe, so each thread keeps its own
+  private val marshallers = new ThreadLocal[Marshaller] {
+    override def initialValue(): Marshaller = jaxbContext.createMarshaller()
+  }
 
   protected def returnXml(request: Request[_]) = request.path.contains(".xml")
 
@@ -168,19 +207,63 @@ class SwaggerBaseApiController extends Controller {
     }
   }
 
+  /**
+   * Get the JSON of a resource as rendered when the listings were loaded, as long as no filter applies to it
+   */
+  protected def getRenderedApiListing(request: Request[_], resourceName: String): Option[Result] = {
+    val docRoot = ""
+    if (returnXml(request) || FilterFactory.filter != null) {
+      None
+    } else {
+      ApiListingCache.rendered(docRoot, resourceName).map { bytes =>
+        new SimpleResult(header = ResponseHeader(200), body = play.api.libs.iteratee.Enumerator(bytes)).as("application/json").withHeaders(AccessControlAllowOrigin)
+      }
+    }
+  }
+
   def toXmlString(data: Any): String = {
     if (data.getClass.equals(classOf[String])) {
       data.asInstanceOf[String]
     } else {
-      val stringWriter = new StringWriter()
-      jaxbContext.createMarshaller().marshal(data, stringWriter)
-      stringWriter.toString
+      new String(toXmlBytes(data), "UTF-8")
+    }
+  }
+
+  def toXmlBytes(data: Any): Array[Byte] = data match {
+    case Some(listing: ApiListing) => marshal(listing)
+    case _ => marshal(data)
+  }
+
+  // key of the resource listing among the rendered listings, resource paths start with a slash
+  protected val ResourceListingPath = ""
+
+  /**
+   * XML of a listing. Without a filter every request gets the same listing of a resource path,
+   * so it's rendered once per load of the listings; filtered listings are rendered for each request.
+   */
+  protected def listingXml(resourcePath: String)(listing: => Option[AnyRef]): Option[Array[Byte]] = {
+    val docRoot = ""
+    def render = listing.map(marshal)
+    ApiListingCache.generation(docRoot) match {
+      case Some(generation) if FilterFactory.filter == null =>
+        SwaggerBaseApiController.renderedXml(generation, resourcePath)(render)
+      case _ => render
     }
   }
 
+  private def marshal(data: Any): Array[Byte] = {
+    val out = new ByteArrayOutputStream()
+    marshallers.get.marshal(data.asInstanceOf[AnyRef], out)
+    out.toByteArray
+  }
+
   protected def XmlResponse(data: Any) = {
-    val xmlValue = toXmlString(data)
-    new SimpleResult(header = ResponseHeader(200), body = play.api.libs.iteratee.Enumerator(xmlValue.getBytes("UTF-8"))).as("application/xml")
+    val xmlBytes = data match {
+      case xmlValue: String => xmlValue.getBytes("UTF-8")
+      case xmlBytes: Array[Byte] => xmlBytes
+      case _ => toXmlBytes(data)
+    }
+    new SimpleResult(header = ResponseHeader(200), body = play.api.libs.iteratee.Enumerator(xmlBytes)).as("application/xml")
   }
 
   protected def returnValue(request: Request[_], obj: Any): Result = {
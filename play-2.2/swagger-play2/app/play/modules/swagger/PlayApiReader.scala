@@ -16,6 +16,7 @@ import play.core.Router.Routes
 
 import java.lang.annotation.Annotation
 import java.lang.reflect.Method
+import java.util.regex.Pattern
 
 import javax.ws.rs.core.Context
 import javax.ws.rs._
@@ -25,14 +26,16 @@ import scala.collection.mutable.ListBuffer
 case class RouteEntry(httpMethod: String, path: String)
 
 object SwaggerUtils {
+  // compiled once rather than on every conversion
+  private val RouteRegex = Pattern.compile("""<[^>]+>""")
+  private val DynamicPartStart = Pattern.compile("\\$")
+
   def convertPathString(str: String) = {
-    str.replaceAll("""<[^>]+>""", "}").replaceAll("\\$", "{")
+    DynamicPartStart.matcher(RouteRegex.matcher(str).replaceAll("}")).replaceAll("{")
   }
 }
 
 class PlayApiReader(val routes: Option[Routes]) extends JaxrsApiReader {
-  private var _routesCache: Map[String, RouteEntry] = null
-
   override
   def readRecursive(
     docRoot: String, 
@@ -179,6 +182,9 @@ class PlayApiReader(val routes: Option[Routes]) extends JaxrsApiReader {
         case e: String if e != "" => Some(e)
         case _ => None
       }
+      // path element specified in basepath, removed from the operation paths
+      lazy val basepath = new java.net.URL(config.getBasePath).getPath
+
       // define a Map to hold Operations keyed by resourcepath
       var operationsMap: Map[String, List[Operation]] = Map.empty
       for (method <- cls.getMethods) {
@@ -191,8 +197,6 @@ class PlayApiReader(val routes: Option[Routes]) extends JaxrsApiReader {
           fullOperationResourcePath match {
             case Some(path) => {
               // got to remove any path element specified in basepath
-              val basepathUrl = new java.net.URL(config.getBasePath)
-              val basepath = basepathUrl.getPath
               val resourcePath = path.stripPrefix(basepath)
               Logger("swagger").debug("method: %s, fullOperationResourcePath: %s, basepath: %s, resourcePath: %s".format(method.getName, path, basepath, resourcePath))
               // store operations in our Map keyed by resourcepath
@@ -407,10 +411,11 @@ class PlayApiReader(val routes: Option[Routes]) extends JaxrsApiReader {
     }
   }
 
-  def routesCache = {
-    if (_routesCache == null) _routesCache = populateRoutesCache
-    _routesCache
-  }
+  /**
+   * Routes by full method name, with their paths already converted.
+   * Built once on first use and never modified, so concurrent reads don't lock.
+   */
+  lazy val routesCache: Map[String, RouteEntry] = populateRoutesCache
 
   /**
    * Get the path for a given method
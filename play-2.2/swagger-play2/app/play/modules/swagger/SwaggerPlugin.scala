@@ -68,6 +68,8 @@ class SwaggerPlugin(application: Application) extends Plugin {
       case _ =>
     }
 
+    ApiListingCache.parallelism = current.configuration.getInt("swagger.reader.parallelism").getOrElse(0)
+
     val docRoot = ""
     ApiListingCache.listing(docRoot)
 
@@ -75,7 +77,7 @@ class SwaggerPlugin(application: Application) extends Plugin {
   }
 
   override def onStop() {
-    ApiListingCache.cache = None
+    ApiListingCache.clear()
     Logger("swagger").info("Plugin - stopped");
   }
 }
\ No newline at end of file
@@ -1,32 +1,111 @@
 package play.modules.swagger
 
+import java.util.concurrent.{Callable, ExecutionException, Executors}
+
 import com.wordnik.swagger.config._
 import com.wordnik.swagger.reader._
-import com.wordnik.swagger.core.util.ReaderUtil
+import com.wordnik.swagger.core.util.{JsonSerializer, ReaderUtil}
+import com.wordnik.swagger.model.ApiListing
 import play.api.Logger
 
 object ApiListingCache extends ReaderUtil {
-  var cache: Option[Map[String, com.wordnik.swagger.model.ApiListing]] = None
-
-  def listing(docRoot: String): Option[Map[String, com.wordnik.swagger.model.ApiListing]] = {
-    cache.orElse{
-      Logger("swagger").info("Loading API metadata")
-      ClassReaders.reader.map{reader =>
-        ScannerFactory.scanner.map(scanner => {
-          val classes = scanner match {
-            case scanner: Scanner => scanner.classes()
-            case _ => List()
-          }
-          Logger("swagger").debug("Classes count: %s".format(classes.length))
-          classes.foreach{ clazz =>
-            Logger("swagger").debug("Controller: %s".format(clazz.getName))
+
+  /**
+   * Number of threads reading controllers in parallel, 0 or 1 reads them one after another.
+   * Set from swagger.reader.parallelism when the plugin starts.
+   */
+  @volatile var parallelism = 0
+
+  // the listings by resource path along with their JSON, published together once loading is complete
+  private case class Listings(generation: Long, listings: Map[String, ApiListing], rendered: Map[String, Array[Byte]])
+
+  @volatile private var cache: Option[Listings] = None
+
+  // number of times the listings were read, guarded by this
+  private var generations = 0L
+
+  def listing(docRoot: String): Option[Map[String, ApiListing]] = load(docRoot).map(_.listings)
+
+  /**
+   * JSON of the listing of the given resource path, rendered when the listings were loaded
+   */
+  def rendered(docRoot: String, resourcePath: String): Option[Array[Byte]] = {
+    load(docRoot).flatMap(_.rendered.get(resourcePath))
+  }
+
+  /**
+   * Generation of the loaded listings, it changes whenever they are read again
+   */
+  def generation(docRoot: String): Option[Long] = load(docRoot).map(_.generation)
+
+  /**
+   * Drop the listings, the next request loads them again
+   */
+  def clear(): Unit = synchronized {
+    cache = None
+  }
+
+  // requests arriving while the listings load wait for that load instead of scanning the controllers again
+  private def load(docRoot: String): Option[Listings] = {
+    cache.orElse {
+      synchronized {
+        if (cache.isEmpty) {
+          cache = read(docRoot)
+        }
+        cache
+      }
+    }
+  }
+
+  private def read(docRoot: String): Option[Listings] = {
+    Logger("swagger").info("Loading API metadata")
+    ClassReaders.reader.flatMap{reader =>
+      ScannerFactory.scanner.map(scanner => {
+        val classes = scanner match {
+          case scanner: Scanner => scanner.classes()
+          case _ => List()
+        }
+        Logger("swagger").debug("Classes count: %s".format(classes.length))
+        classes.foreach{ clazz =>
+          Logger("swagger").debug("Controller: %s".format(clazz.getName))
+        }
+        val listings = readAll(reader, docRoot, classes).flatten
+        val mergedListings = groupByResourcePath(listings).map(m => (m.resourcePath, m)).toMap
+        val rendered = mergedListings.map {case (path, m) => path -> JsonSerializer.asJson(m).getBytes("UTF-8")}
+        generations += 1
+        Listings(generations, mergedListings, rendered)
+      })
+    }
+  }
+
+  /**
+   * Reads the listings of each class, using up to parallelism threads when it is greater than one.
+   * Listings come back in the order of the classes, so merging them gives the same result either way.
+   */
+  private def readAll(reader: ClassReader, docRoot: String, classes: List[Class[_]]): List[Option[ApiListing]] = {
+    if (parallelism <= 1 || classes.length <= 1) {
+      for (cls <- classes) yield reader.read(docRoot, cls, ConfigFactory.config)
+    } else {
+      val contextClassLoader = Thread.currentThread.getContextClassLoader
+      val pool = Executors.newFixedThreadPool(math.min(parallelism, classes.length))
+      try {
+        val futures = for (cls <- classes) yield pool.submit(new Callable[Option[ApiListing]] {
+          def call(): Option[ApiListing] = {
+            // controller and model classes are loaded through the context class loader
+            Thread.currentThread.setContextClassLoader(contextClassLoader)
+            reader.read(docRoot, cls, ConfigFactory.config)
           }
-          val listings = (for(cls <- classes) yield reader.read(docRoot, cls, ConfigFactory.config)).flatten
-          val mergedListings = groupByResourcePath(listings)
-          cache = Some(mergedListings.map(m => (m.resourcePath, m)).toMap)
         })
+        futures.map { future =>
+          try {
+            future.get
+          } catch {
+            case e: ExecutionException => throw e.getCause
+          }
+        }
+      } finally {
+        pool.shutdownNow()
       }
-      cache
     }
   }
-}
\ No newline at end of file
+}
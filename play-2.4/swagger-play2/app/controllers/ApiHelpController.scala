@@ -19,19 +19,27 @@ package controllers
 import play.api.mvc._
 import play.api.Logger
 import play.api.libs.iteratee.Enumerator
-import play.modules.swagger.ApiListingCache
+import play.modules.swagger._
 
+import javax.xml.bind.{JAXBContext, JAXBElement, Marshaller}
 import javax.xml.bind.annotation._
+import javax.xml.namespace.QName
 
+import java.beans.Introspector
 import java.io.StringWriter
+import java.time.format.{DateTimeFormatter, DateTimeParseException}
+import java.time.{Instant, ZoneOffset}
 
-import io.swagger.util.Json
+import io.swagger.util.{Json, Yaml}
 import io.swagger.models.Swagger
-import io.swagger.core.filter.SpecFilter
+import io.swagger.core.filter.{SpecFilter, SwaggerSpecFilter}
 import io.swagger.config.FilterFactory
+import org.apache.commons.codec.digest.DigestUtils
 
 import scala.collection.JavaConversions._
 import scala.collection.JavaConverters._
+import scala.concurrent.Future
+import scala.concurrent.duration.{Duration, MILLISECONDS}
 
 object ErrorResponse {
   val ERROR = 1
@@ -67,78 +75,272 @@ class ErrorResponse(@XmlElement var code: Int, @XmlElement var message: String)
 
 class ApiHelpController extends SwaggerBaseApiController {
 
-  def getResources = Action {
+  def getResources = Action.async {
     request =>
       implicit val requestHeader: RequestHeader = request
-      val host = requestHeader.host
+      whenListingReady(request) {
+        whenModified(request, None) {
+          getCachedResourceListing(request, requestHeader.host).map(Future.successful).getOrElse {
+            whenAdmitted(request) {
+              getResourcesResult(request)
+            }
+          }
+        }
+      }
+  }
+
+  private def getResourcesResult(request: Request[_])(implicit requestHeader: RequestHeader) = {
+    val host = requestHeader.host
+    val cached = getRenderedResourceListing(request, host)
+    cached.getOrElse {
       val resourceListing = getResourceListing(host)
-      val responseStr = returnXml(request) match {
-        case true => toXmlString(resourceListing)
-        case false => toJsonString(resourceListing)
+      returnXml(request) match {
+        case true => returnValue(request, toXmlString(resourceListing))
+        case false => returnListing(request, resourceListing)
       }
-      returnValue(request, responseStr)
+    }
   }
 
-  def getResource(path: String) = Action {
+  def getResource(path: String) = Action.async {
     request =>
       implicit val requestHeader: RequestHeader = request
-      val host = requestHeader.host
-      val apiListing = getApiListing(path, host)
-      val responseStr = returnXml(request) match {
-        case true => toXmlString(apiListing)
-        case false => toJsonString(apiListing)
-      }
-      Option(responseStr) match {
-        case Some(help) => returnValue(request, help)
-        case None =>
-          val msg = new ErrorResponse(500, "api listing for path " + path + " not found")
-          Logger("swagger").error(msg.message)
-          if (returnXml(request)) {
-            InternalServerError.chunked(Enumerator(toXmlString(msg).getBytes("UTF-8"))).as("application/xml")
-          } else {
-            InternalServerError.chunked(Enumerator(toJsonString(msg).getBytes("UTF-8"))).as("application/json")
+      whenListingReady(request) {
+        whenModified(request, Some(path)) {
+          whenAdmitted(request) {
+            getResourceResult(request, path)
           }
+        }
       }
   }
+
+  private def getResourceResult(request: Request[_], path: String)(implicit requestHeader: RequestHeader) = {
+    val host = requestHeader.host
+    val apiListing = getApiListing(path, host)
+    Option(apiListing) match {
+      case Some(help) if returnXml(request) => returnValue(request, toXmlString(help))
+      case Some(help) => returnListing(request, help)
+      case None =>
+        val msg = new ErrorResponse(500, "api listing for path " + path + " not found")
+        Logger("swagger").error(msg.message)
+        if (returnXml(request)) {
+          InternalServerError.chunked(Enumerator(toXmlString(msg).getBytes("UTF-8"))).as("application/xml")
+        } else {
+          InternalServerError.chunked(Enumerator(toJsonString(msg).getBytes("UTF-8"))).as("application/json")
+        }
+    }
+  }
+}
+
+object SwaggerBaseApiController {
+
+  // JAXB contexts are costly to create and thread safe, marshallers are cheap but not thread safe
+  private lazy val jaxbContext = JAXBContext.newInstance(classOf[ErrorResponse])
+
+  private val marshallers = new ThreadLocal[Marshaller] {
+    override def initialValue(): Marshaller = jaxbContext.createMarshaller()
+  }
+
+  /**
+   * Marshal a JAXB bean, e.g. an ErrorResponse, into an element named after its class
+   */
+  def marshal(data: Any): String = {
+    val cls = data.getClass.asInstanceOf[Class[Any]]
+    val element = new JAXBElement[Any](new QName(Introspector.decapitalize(cls.getSimpleName)), cls, data)
+    val stringWriter = new StringWriter()
+    marshallers.get.marshal(element, stringWriter)
+    stringWriter.toString
+  }
 }
 
 class SwaggerBaseApiController extends Controller {
 
   protected def returnXml(request: Request[_]) = request.path.contains(".xml")
 
+  protected def returnYaml(request: Request[_]) = request.path.contains(".yaml")
+
   protected val AccessControlAllowOrigin = ("Access-Control-Allow-Origin", "*")
 
+  protected val RetryAfterSeconds = "5"
+
   /**
-   * Get a list of all top level resources
+   * Answer 503 while the listing is still being built in the background, otherwise run the given block
+   * on the swagger dispatcher once the listing is loaded. Waiting for the listing doesn't hold a dispatcher thread.
    */
-  protected def getResourceListing(host: String)(implicit requestHeader: RequestHeader) = {
-    Logger("swagger").debug("ApiHelpInventory.getRootResources")
+  protected def whenListingReady(request: Request[_])(result: => Future[Result]): Future[Result] = {
     val docRoot = ""
-    val queryParams = (for((key, value) <- requestHeader.queryString) yield {
-      (key, value.toList.asJava)
-    }).toMap
-    val cookies = (for(cookie <- requestHeader.cookies) yield {
-      (cookie.name, cookie.value)
-    }).toMap
-    val headers = (for((key, value) <- requestHeader.headers.toMap) yield {
-      (key, value.toList.asJava)
-    }).toMap
+    val timeout = Option(PlayConfigFactory.getConfig).map(_.getWarmUpTimeout).getOrElse(0L)
+    ApiListingCache.whenReady(docRoot, Duration(timeout, MILLISECONDS)).flatMap {
+      case true => result
+      case false => Future.successful(serviceUnavailable(request, new ErrorResponse(503, "api listing is not ready yet")))
+    }(SwaggerDispatcher.executionContext)
+  }
 
-    val f = new SpecFilter
-    val l: Option[Swagger] = ApiListingCache.listing(docRoot, host)
+  /**
+   * Answer 503 when too many listing requests are already being filtered or rendered, see RenderAdmission
+   */
+  protected def whenAdmitted(request: Request[_])(result: => Result): Future[Result] = {
+    RenderAdmission.admit(result) {
+      serviceUnavailable(request, new ErrorResponse(ErrorResponse.TOO_BUSY, "too many api listing requests, try again later"))
+    }(SwaggerDispatcher.executionContext)
+  }
 
-    val specs: Swagger = l match {
-      case Some(m) => m
-      case _ => new Swagger()
+  private def serviceUnavailable(request: Request[_], msg: ErrorResponse): Result = {
+    Logger("swagger").debug(msg.message)
+    val response = returnXml(request) match {
+      case true => ServiceUnavailable(toXmlString(msg)).as("application/xml")
+      case false => ServiceUnavailable(toJsonString(msg)).as("application/json")
     }
+    response.withHeaders(RETRY_AFTER -> RetryAfterSeconds, AccessControlAllowOrigin)
+  }
+
+  private val HttpDateFormat = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC)
 
-    val hasFilter = Option(FilterFactory.getFilter)
-    hasFilter match {
-      case Some(filter) => f.filter(specs, FilterFactory.getFilter, queryParams.asJava, cookies, headers)
-      case None => specs
+  /**
+   * Answer 304 when the client already has this variant of the listing, otherwise add its validators to the result.
+   * Only listings get validators and Cache-Control, errors such as a 503 "too busy" must not be cached.
+   * Only variants whose content follows from the request are validated: unfiltered listings and listings
+   * filtered by a CachingSpecFilter with a cache key. The ETag is derived from the content hash computed
+   * when the listing was loaded, so answering 304 doesn't serialize anything.
+   */
+  protected def whenModified(request: Request[_], resource: Option[String])(result: => Future[Result]): Future[Result] = {
+    implicit val requestHeader: RequestHeader = request
+    val docRoot = ""
+    val variant = FilterFactory.getFilter match {
+      case null => Some("")
+      case filter: CachingSpecFilter => Option(filter.getCacheKey(request))
+      case _ => None
+    }
+    val validators = for (key <- variant; index <- ApiListingCache.index(docRoot)) yield {
+      val format = if (returnXml(request)) RenderedListingCache.XML else listingFormat(request)
+      // only the resource listing has compressed variants, see getRenderedResourceListing
+      val encoding = if (resource.isEmpty && !returnXml(request)) acceptedEncoding(request) else RenderedListingCache.IDENTITY
+      val etag = "\"" + DigestUtils.sha1Hex(Seq(index.contentHash, request.host, key, resource.getOrElse(""), format, encoding).mkString("\n")) + "\""
+      (etag, index.lastModified)
     }
+    validators match {
+      case Some((etag, lastModified)) =>
+        val headers = Seq(ETAG -> etag, LAST_MODIFIED -> HttpDateFormat.format(Instant.ofEpochMilli(lastModified))) ++ cacheControl
+        if (notModified(request, etag, lastModified)) {
+          val vary = if (Option(PlayConfigFactory.getConfig).exists(_.isCompress)) Seq(VARY -> ACCEPT_ENCODING) else Nil
+          Future.successful(NotModified.withHeaders(headers ++ vary :+ AccessControlAllowOrigin: _*))
+        } else {
+          result.map(withListingHeaders(_, headers))(SwaggerDispatcher.executionContext)
+        }
+      case None => result.map(withListingHeaders(_, cacheControl))(SwaggerDispatcher.executionContext)
+    }
+  }
 
+  private def withListingHeaders(result: Result, headers: Seq[(String, String)]): Result = {
+    if (result.header.status == OK) result.withHeaders(headers: _*) else result
+  }
 
+  private def notModified(request: RequestHeader, etag: String, lastModified: Long): Boolean = {
+    request.headers.get(IF_NONE_MATCH) match {
+      case Some(tags) => tags.split(',').map(_.trim.stripPrefix("W/")).exists(tag => tag == etag || tag == "*")
+      case None => request.headers.get(IF_MODIFIED_SINCE).flatMap(parseHttpDate).exists(lastModified <= _)
+    }
+  }
+
+  private def parseHttpDate(date: String): Option[Long] = {
+    try {
+      Some(Instant.from(HttpDateFormat.parse(date)).toEpochMilli)
+    } catch {
+      case ex: DateTimeParseException => None
+    }
+  }
+
+  private def cacheControl: Seq[(String, String)] = {
+    Option(PlayConfigFactory.getConfig).map(_.getCacheMaxAge).filter(_ > 0) match {
+      // filtered listings may differ per user
+      case Some(maxAge) if FilterFactory.getFilter != null => Seq(CACHE_CONTROL -> s"private, max-age=$maxAge")
+      case Some(maxAge) => Seq(CACHE_CONTROL -> s"max-age=$maxAge")
+      case None => Nil
+    }
+  }
+
+  /**
+   * Get the list of all top level resources as pre-rendered bytes, when the listing variant is cacheable
+   */
+  protected def getRenderedResourceListing(request: Request[_], host: String): Option[Result] = {
+    renderedResourceListing(request, host, render = true)
+  }
+
+  /**
+   * Get the list of all top level resources when it has been rendered already
+   */
+  protected def getCachedResourceListing(request: Request[_], host: String): Option[Result] = {
+    renderedResourceListing(request, host, render = false)
+  }
+
+  private def renderedResourceListing(request: Request[_], host: String, render: Boolean): Option[Result] = {
+    implicit val requestHeader: RequestHeader = request
+    val docRoot = ""
+    val format = if (returnXml(request)) RenderedListingCache.XML else listingFormat(request)
+    // like in whenModified, the XML variant isn't compressed
+    val encoding = if (returnXml(request)) RenderedListingCache.IDENTITY else acceptedEncoding(request)
+    val bytes = ApiListingCache.index(docRoot).flatMap { index =>
+      FilterFactory.getFilter match {
+        case null if render =>
+          Some(RenderedListingCache.get(ApiListingCache.listing(index, host), index.contentHash, host, format, encoding))
+        case null =>
+          RenderedListingCache.cached(index.contentHash, host, format, encoding)
+        case filter: CachingSpecFilter =>
+          Option(filter.getCacheKey(request)).flatMap { key =>
+            if (render) {
+              Some(FilteredListingCache.get(key, index.contentHash, host, None)(filterListing(filter, ApiListingCache.listing(index, host)))
+                .bytes(format, encoding))
+            } else {
+              FilteredListingCache.cached(key, index.contentHash, host, None).flatMap(_.cachedBytes(format, encoding))
+            }
+          }
+        case _ => None
+      }
+    }
+    bytes.map(BytesResponse(_, format, encoding).withHeaders(AccessControlAllowOrigin))
+  }
+
+  /**
+   * Rendering of the listing: YAML, or JSON pretty printed unless switched off in the configuration
+   * or with a pretty=false query parameter
+   */
+  protected def listingFormat(request: Request[_]): String = {
+    val pretty = request.getQueryString("pretty") match {
+      case Some(value) => value != "false"
+      case None => Option(PlayConfigFactory.getConfig).forall(_.isPretty)
+    }
+    returnYaml(request) match {
+      case true => RenderedListingCache.YAML
+      case false if pretty => RenderedListingCache.JSON
+      case false => RenderedListingCache.COMPACT_JSON
+    }
+  }
+
+  /**
+   * Pick the content encoding of the cached listing from the Accept-Encoding header
+   */
+  protected def acceptedEncoding(request: RequestHeader): String = {
+    val compress = Option(PlayConfigFactory.getConfig).exists(_.isCompress)
+    val accepted = request.headers.getAll(ACCEPT_ENCODING)
+      .flatMap(_.split(','))
+      .map(_.trim.toLowerCase)
+      .filterNot(_.matches(".*;\\s*q=0(\\.0*)?"))
+      .map(_.takeWhile(_ != ';').trim)
+    if (!compress) RenderedListingCache.IDENTITY
+    else if (accepted.contains(RenderedListingCache.GZIP)) RenderedListingCache.GZIP
+    else if (accepted.contains(RenderedListingCache.DEFLATE)) RenderedListingCache.DEFLATE
+    else RenderedListingCache.IDENTITY
+  }
+
+  /**
+   * Get a list of all top level resources
+   */
+  protected def getResourceListing(host: String)(implicit requestHeader: RequestHeader) = {
+    Logger("swagger").debug("ApiHelpInventory.getRootResources")
+    val docRoot = ""
+    val index = ApiListingCache.index(docRoot)
+    filtered(index, host, None) {
+      listingOrEmpty(index.map(ApiListingCache.listing(_, host)))
+    }
   }
 
   /**
@@ -147,49 +349,84 @@ class SwaggerBaseApiController extends Controller {
   protected def getApiListing(resourceName: String, host: String)(implicit requestHeader: RequestHeader) = {
     Logger("swagger").debug("ApiHelpInventory.getResource(%s)".format(resourceName))
     val docRoot = ""
-    val f = new SpecFilter
-    val queryParams = requestHeader.queryString.map {case (key, value) => key -> value.toList.asJava}
-    val cookies = requestHeader.cookies.map {cookie => cookie.name -> cookie.value}.toMap.asJava
-    val headers = requestHeader.headers.toMap.map {case (key, value) => key -> value.toList.asJava}
     val pathPart = resourceName
 
-    val l: Option[Swagger] = ApiListingCache.listing(docRoot, host)
-    val specs: Swagger = l match {
-      case Some(m) => m
-      case _ => new Swagger()
+    // the resource listing comes from the prefix index, so the filter only sees the matching paths
+    val index = ApiListingCache.index(docRoot)
+    filtered(index, host, Some(pathPart)) {
+      listingOrEmpty(index.map(ApiListingCache.resource(_, pathPart, host)))
     }
-    val hasFilter = Option(FilterFactory.getFilter)
+  }
 
-    val clone = hasFilter match {
-      case Some(filter) => f.filter(specs, FilterFactory.getFilter, queryParams.asJava, cookies, headers)
-      case None => specs
-    }
-    clone.setPaths(clone.getPaths.filterKeys(_.startsWith(pathPart) ))
-    clone
+  private def listingOrEmpty(listing: Option[Swagger]): Swagger = listing match {
+    case Some(m) => m
+    case _ => new Swagger()
   }
 
-  def toXmlString(data: Any): String = {
-    if (data.getClass.equals(classOf[String])) {
-      data.asInstanceOf[String]
-    } else {
-      val stringWriter = new StringWriter()
-      stringWriter.toString
+  /**
+   * Apply the configured filter, reusing the filtered listing when the filter provides a cache key
+   */
+  private def filtered(index: Option[ApiListingIndex], host: String, resource: Option[String])(specs: => Swagger)
+                      (implicit requestHeader: RequestHeader): Swagger = {
+    FilterFactory.getFilter match {
+      case null => specs
+      case filter: CachingSpecFilter =>
+        Option(filter.getCacheKey(requestHeader)) match {
+          case Some(key) =>
+            val contentHash = index.map(_.contentHash).getOrElse("")
+            FilteredListingCache.get(key, contentHash, host, resource)(filterListing(filter, specs)).swagger
+          case None => filterListing(filter, specs)
+        }
+      case filter => filterListing(filter, specs)
     }
   }
 
+  private def filterListing(filter: SwaggerSpecFilter, specs: Swagger)(implicit requestHeader: RequestHeader): Swagger = {
+    val queryParams = requestHeader.queryString.map {case (key, value) => key -> value.toList.asJava}
+    val cookies = requestHeader.cookies.map {cookie => cookie.name -> cookie.value}.toMap.asJava
+    val headers = requestHeader.headers.toMap.map {case (key, value) => key -> value.toList.asJava}
+    new SpecFilter().filter(specs, filter, queryParams.asJava, cookies, headers.asJava)
+  }
+
+  def toXmlString(data: Any): String = data match {
+    case value: String => value
+    case swagger: Swagger => new String(RenderedListingCache.render(swagger, RenderedListingCache.XML), "UTF-8")
+    case value => SwaggerBaseApiController.marshal(value)
+  }
+
   protected def XmlResponse(data: Any) = {
     val xmlValue = toXmlString(data)
     Ok.chunked(Enumerator(xmlValue.getBytes("UTF-8"))).as("application/xml")
   }
 
+  /**
+   * Stream the listing into the response body, without rendering it to a string first
+   */
+  protected def returnListing(request: Request[_], listing: Swagger): Result = {
+    val format = listingFormat(request)
+    val contentType = format match {
+      case RenderedListingCache.YAML => "application/yaml"
+      case _ => "application/json"
+    }
+    Ok.chunked(ListingStream.enumerate(listing, format)(SwaggerDispatcher.executionContext)).as(contentType).withHeaders(AccessControlAllowOrigin)
+  }
+
   protected def returnValue(request: Request[_], obj: Any): Result = {
     val response = returnXml(request) match {
       case true => XmlResponse(obj)
+      case false if returnYaml(request) => YamlResponse(obj)
       case false => JsonResponse(obj)
     }
     response.withHeaders(AccessControlAllowOrigin)
   }
 
+  def toTextString(request: Request[_], data: Any): String = {
+    returnYaml(request) match {
+      case true => toYamlString(data)
+      case false => toJsonString(data)
+    }
+  }
+
   def toJsonString(data: Any): String = {
     if (data.getClass.equals(classOf[String])) {
       data.asInstanceOf[String]
@@ -206,4 +443,41 @@ class SwaggerBaseApiController extends Controller {
       body = Enumerator(jsonBytes)
     ).as ("application/json")
   }
+
+  def toYamlString(data: Any): String = {
+    if (data.getClass.equals(classOf[String])) {
+      data.asInstanceOf[String]
+    } else {
+      Yaml.pretty().writeValueAsString(data)
+    }
+  }
+
+  protected def YamlResponse(data: Any) = {
+    val yamlValue = toYamlString(data)
+    val yamlBytes = yamlValue.getBytes("UTF-8")
+    Result (
+      header = ResponseHeader(200, Map(CONTENT_LENGTH -> yamlBytes.length.toString)),
+      body = Enumerator(yamlBytes)
+    ).as ("application/yaml")
+  }
+
+  protected def BytesResponse(bytes: Array[Byte], format: String, encoding: String) = {
+    val contentType = format match {
+      case RenderedListingCache.YAML => "application/yaml"
+      case RenderedListingCache.XML => "application/xml"
+      case _ => "application/json"
+    }
+    val encodingHeaders = encoding match {
+      case RenderedListingCache.IDENTITY => Map.empty[String, String]
+      case _ => Map(CONTENT_ENCODING -> encoding)
+    }
+    val varyHeaders = Option(PlayConfigFactory.getConfig).exists(_.isCompress) match {
+      case true => Map(VARY -> ACCEPT_ENCODING)
+      case false => Map.empty[String, String]
+    }
+    Result (
+      header = ResponseHeader(200, Map(CONTENT_LENGTH -> bytes.length.toString) ++ encodingHeaders ++ varyHeaders),
+      body = Enumerator(bytes)
+    ).as (contentType)
+  }
 }
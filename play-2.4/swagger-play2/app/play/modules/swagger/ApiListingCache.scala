@@ -3,31 +3,222 @@ package play.modules.swagger
 import io.swagger.config._
 import io.swagger.models.Swagger
 import play.api.Logger
+import play.api.libs.iteratee.Execution.trampoline
+import io.swagger.util.Json
+import play.modules.swagger.util.{SwaggerContext, SwaggerCopy}
+
+import scala.collection.concurrent.TrieMap
+import scala.concurrent.duration.Duration
+import scala.concurrent.{Await, ExecutionContext, Future, Promise, blocking}
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success}
 
 object ApiListingCache {
-  var cache: Option[Swagger] = None
+  // the cached listing is never mutated once published, host specific views are shallow copies of it
+  @volatile private var cache: Option[ApiListingIndex] = None
+
+  // the listing being built, shared by all callers until it is published; guarded by this
+  private var inFlight: Option[Future[ApiListingIndex]] = None
+
+  // the host comes from the request, so only a bounded number of views is kept
+  private val MaxHostViews = 16
+
+  private val hostViews = TrieMap.empty[String, Swagger]
+
+  // set while the listing is being built in the background at application start
+  @volatile private var warmingUp: Option[Future[Unit]] = None
 
   def listing(docRoot: String, host: String): Option[Swagger] = {
+    load(docRoot).map(listing(_, host))
+  }
+
+  def listing(index: ApiListingIndex, host: String): Swagger = forHost(index, host)
+
+  /**
+    * The cached listing with its content hash and load time
+    */
+  def index(docRoot: String): Option[ApiListingIndex] = load(docRoot)
+
+  /**
+    * Listing of the paths starting with the given resource path, along with the definitions they reference
+    */
+  def resource(docRoot: String, resourceName: String, host: String): Option[Swagger] = {
+    load(docRoot).map(resource(_, resourceName, host))
+  }
+
+  def resource(index: ApiListingIndex, resourceName: String, host: String): Swagger = {
+    SwaggerCopy.withHost(index.resource(resourceName), host)
+  }
+
+  /**
+    * Builds the listing in the background, so application start doesn't wait for controller scanning
+    */
+  def warmUp(docRoot: String)(implicit ec: ExecutionContext): Future[Unit] = synchronized {
+    val future = Future {
+      blocking {
+        load(docRoot)
+      }
+      Logger("swagger").info("Swagger - API listing loaded in the background")
+    }
+    future.onFailure {
+      case ex => Logger("swagger").error("Failed to load API listing in the background", ex)
+    }
+    warmingUp = Some(future)
+    future
+  }
+
+  /**
+    * Completes once the listing is loaded, or with false when a running warm-up takes longer than the given time.
+    * A failed warm-up counts as done, so the listing is loaded again. Nothing waits on a thread: a running warm-up
+    * or load is composed on and the timeout is scheduled, a missing listing is loaded on the swagger dispatcher.
+    */
+  def whenReady(docRoot: String, timeout: Duration): Future[Boolean] = {
+    if (cache.isDefined) {
+      Future.successful(true)
+    } else {
+      implicit val ec: ExecutionContext = trampoline
+      val warmedUp = warmingUp.filter(!_.isCompleted) match {
+        case Some(future) => SwaggerDispatcher.within(future.map(_ => true).recover { case NonFatal(_) => true }, timeout)(false)
+        case None => Future.successful(true)
+      }
+      warmedUp.flatMap {
+        case true => loadAsync(docRoot).map(_ => true)
+        case false => Future.successful(false)
+      }
+    }
+  }
+
+  private def loadAsync(docRoot: String): Future[ApiListingIndex] = {
+    cache.map(Future.successful).orElse(synchronized(inFlight)).getOrElse {
+      Future(populate(docRoot, replace = false))(SwaggerDispatcher.executionContext).flatMap(identity)(trampoline)
+    }
+  }
+
+  /**
+    * Scans the controllers again and swaps in the new listing.
+    * Requests keep being served from the current listing until the new one is published.
+    */
+  def refresh(docRoot: String): Swagger = {
+    Await.result(populate(docRoot, replace = true), Duration.Inf).swagger
+  }
+
+  def reset(): Unit = synchronized {
+    warmingUp = None
+    inFlight = None
+    cache = None
+    hostViews.clear()
+    RenderedListingCache.clear()
+    FilteredListingCache.clear()
+  }
+
+  private def load(docRoot: String): Option[ApiListingIndex] = {
     cache.orElse {
+      Some(Await.result(populate(docRoot, replace = false), Duration.Inf))
+    }
+  }
+
+  /**
+    * Single flight population: the first caller builds the listing on its own thread,
+    * concurrent callers wait for the same result instead of scanning the controllers again.
+    */
+  private def populate(docRoot: String, replace: Boolean): Future[ApiListingIndex] = {
+    val promise = Promise[ApiListingIndex]()
+    val shared = synchronized {
+      cache.filterNot(_ => replace).map(Future.successful).orElse(inFlight).getOrElse {
+        inFlight = Some(promise.future)
+        promise.future
+      }
+    }
+    if (shared eq promise.future) {
       Logger("swagger").debug("Loading API metadata")
+      // anything thrown, e.g. a NoClassDefFoundError from a controller, fails the load for every waiting caller
+      // rather than leaving them waiting for a listing that never comes
+      val result = try {
+        val specResource = Option(PlayConfigFactory.getConfig).flatMap(config => Option(config.getSpecResource))
+        Success(new ApiListingIndex(specResource.flatMap(loadPrebuilt).getOrElse(build())))
+      } catch {
+        case ex: Throwable => Failure(ex)
+      }
+      try {
+        synchronized {
+          // a reset while building drops the result
+          if (inFlight.exists(_ eq promise.future)) {
+            try {
+              result.foreach(publish)
+            } finally {
+              inFlight = None
+            }
+          }
+        }
+      } finally {
+        promise.complete(result)
+      }
+    }
+    shared
+  }
 
-      val scanner = ScannerFactory.getScanner()
-      val classes = scanner.classes()
-      val reader = new PlayReader(null)
-      var swagger = reader.read(classes)
+  /**
+    * Scans and reads the API controllers into a new listing
+    */
+  def build(): Swagger = {
+    val scanner = ScannerFactory.getScanner()
+    val classes = scanner.classes()
+    val reader = new PlayReader(null)
+    configure(reader.read(classes))
+  }
 
-      scanner match {
-        case config: SwaggerConfig => {
-          swagger = config.configure(swagger)
-        }
-        case config => {
-          // no config, do nothing
+  /**
+    * Streams a listing generated at build time by SwaggerSpecGenerator from the classpath
+    */
+  private def loadPrebuilt(resource: String): Option[Swagger] = {
+    Option(SwaggerContext.getResourceAsStream(resource)) match {
+      case Some(stream) =>
+        try {
+          Logger("swagger").debug("Loading pre-built API listing %s".format(resource))
+          Some(configure(Json.mapper().readValue(stream, classOf[Swagger])))
+        } finally {
+          stream.close()
         }
+      case None =>
+        Logger("swagger").warn("Pre-built API listing %s not found, scanning controllers".format(resource))
+        None
+    }
+  }
+
+  private def configure(swagger: Swagger): Swagger = {
+    ScannerFactory.getScanner() match {
+      case config: SwaggerConfig => {
+        config.configure(swagger)
+      }
+      case config => {
+        // no config, do nothing
+        swagger
       }
-      cache = Some(swagger)
-      cache
     }
-    cache.get.setHost(host)
-    cache
+  }
+
+  private def publish(index: ApiListingIndex): Unit = synchronized {
+    hostViews.clear()
+    // rendered and filtered listings are keyed by content hash, so entries added for the previous listing
+    // by requests still running are never served for this one
+    RenderedListingCache.clear()
+    FilteredListingCache.clear()
+    cache = Some(index)
+  }
+
+  private def forHost(index: ApiListingIndex, host: String): Swagger = {
+    hostViews.get(host) match {
+      case Some(view) if cache.exists(_ eq index) => view
+      case _ =>
+        val view = SwaggerCopy.withHost(index.swagger, host)
+        synchronized {
+          // don't keep a view of a listing replaced in the meantime
+          if (cache.exists(_ eq index) && hostViews.size < MaxHostViews) {
+            hostViews.putIfAbsent(host, view).getOrElse(view)
+          } else {
+            view
+          }
+        }
+    }
   }
 }
@@ -0,0 +1,141 @@
+package play.modules.swagger
+
+import java.io.OutputStream
+import java.security.MessageDigest
+
+import io.swagger.models._
+import io.swagger.util.Json
+import org.apache.commons.codec.binary.Hex
+import io.swagger.models.parameters.{AbstractSerializableParameter, BodyParameter, Parameter}
+import io.swagger.models.properties.{ArrayProperty, MapProperty, Property, RefProperty}
+import play.modules.swagger.util.SwaggerCopy
+
+import scala.collection.JavaConversions._
+import scala.collection.concurrent.TrieMap
+import scala.collection.mutable
+
+/**
+  * Prefix index over the paths of a cached listing.
+  * Per-resource listings hold only the paths under the resource and the definitions they reference;
+  * each one is built on first use and then served from the index.
+  */
+class ApiListingIndex(val swagger: Swagger) {
+
+  /**
+    * Hash of the listing content, the base of the validators of every variant served from it
+    */
+  val contentHash: String = {
+    val digest = MessageDigest.getInstance("SHA-1")
+    Json.mapper().writeValue(new OutputStream {
+      override def write(b: Int): Unit = digest.update(b.toByte)
+
+      override def write(b: Array[Byte], off: Int, len: Int): Unit = digest.update(b, off, len)
+    }, swagger)
+    Hex.encodeHexString(digest.digest())
+  }
+
+  // second precision, as sent in Last-Modified
+  val lastModified: Long = System.currentTimeMillis() / 1000 * 1000
+
+  // resource names come from the request, so only a bounded number of listings is kept
+  private val MaxResources = 256
+
+  private val paths = new java.util.TreeMap[String, Path]()
+  Option(swagger.getPaths).foreach(paths.putAll(_))
+
+  private val resources = TrieMap.empty[String, Swagger]
+
+  def resource(pathPart: String): Swagger = {
+    resources.get(pathPart) match {
+      case Some(listing) => listing
+      case None =>
+        val listing = build(pathPart)
+        if (resources.size < MaxResources) {
+          resources.putIfAbsent(pathPart, listing).getOrElse(listing)
+        } else {
+          listing
+        }
+    }
+  }
+
+  private def build(pathPart: String): Swagger = {
+    val matching = new java.util.LinkedHashMap[String, Path]()
+    val iter = paths.tailMap(pathPart, true).entrySet().iterator()
+    var done = false
+    while (!done && iter.hasNext) {
+      val entry = iter.next()
+      if (entry.getKey.startsWith(pathPart)) {
+        matching.put(entry.getKey, entry.getValue)
+      } else {
+        done = true
+      }
+    }
+
+    val listing = SwaggerCopy.withPaths(swagger, matching)
+    Option(swagger.getDefinitions).foreach { definitions =>
+      val names = referencedModels(matching.values, definitions)
+      val referenced = new java.util.LinkedHashMap[String, Model]()
+      for ((name, model) <- definitions if names.contains(name)) {
+        referenced.put(name, model)
+      }
+      listing.setDefinitions(referenced)
+    }
+    listing
+  }
+
+  /**
+    * Names of all definitions reachable from the operations of the given paths
+    */
+  private def referencedModels(paths: Iterable[Path], definitions: java.util.Map[String, Model]): collection.Set[String] = {
+    val found = mutable.LinkedHashSet.empty[String]
+
+    def addRef(ref: String): Unit = {
+      if (ref != null && !found.contains(ref)) {
+        found += ref
+        Option(definitions.get(ref)).foreach(addModel)
+      }
+    }
+
+    def addProperty(property: Property): Unit = property match {
+      case ref: RefProperty => addRef(ref.getSimpleRef)
+      case array: ArrayProperty => addProperty(array.getItems)
+      case map: MapProperty => addProperty(map.getAdditionalProperties)
+      case _ =>
+    }
+
+    def addModel(model: Model): Unit = model match {
+      case ref: RefModel => addRef(ref.getSimpleRef)
+      case array: ArrayModel => addProperty(array.getItems)
+      case composed: ComposedModel =>
+        Option(composed.getAllOf).foreach(_.foreach(addModel))
+        Option(composed.getInterfaces).foreach(_.foreach(addModel))
+        addModel(composed.getParent)
+        addModel(composed.getChild)
+      case impl: ModelImpl =>
+        Option(impl.getProperties).foreach(_.values.foreach(addProperty))
+        addProperty(impl.getAdditionalProperties)
+      case null =>
+      case other => Option(other.getProperties).foreach(_.values.foreach(addProperty))
+    }
+
+    def addParameters(parameters: java.util.List[Parameter]): Unit = {
+      Option(parameters).foreach(_.foreach {
+        case body: BodyParameter => addModel(body.getSchema)
+        case serializable: AbstractSerializableParameter[_] => addProperty(serializable.getItems)
+        case _ =>
+      })
+    }
+
+    for (path <- paths) {
+      addParameters(path.getParameters)
+      for (operation <- path.getOperations) {
+        addParameters(operation.getParameters)
+        Option(operation.getResponses).foreach(_.values.foreach { response =>
+          addProperty(response.getSchema)
+          Option(response.getHeaders).foreach(_.values.foreach(addProperty))
+        })
+      }
+    }
+    found
+  }
+}
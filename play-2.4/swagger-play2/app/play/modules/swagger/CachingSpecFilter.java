@@ -0,0 +1,16 @@
+package play.modules.swagger;
+
+import io.swagger.core.filter.SwaggerSpecFilter;
+import play.api.mvc.RequestHeader;
+
+/**
+ * A SwaggerSpecFilter whose decisions depend only on a small part of the request, e.g. a tenant or role header.
+ * Listings filtered for the same cache key are reused instead of filtering the whole spec on every request.
+ */
+public interface CachingSpecFilter extends SwaggerSpecFilter {
+
+    /**
+     * Returns the key of the listing variant to serve for the request, or null to filter the request without caching.
+     */
+    String getCacheKey(RequestHeader request);
+}
@@ -0,0 +1,224 @@
+package play.modules.swagger;
+
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.models.Swagger;
+import play.Logger;
+import play.routes.compiler.Route;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the partial spec read from each controller, so a rescan after a dev mode reload only reads
+ * the controllers that changed.
+ * A controller is read again when its fingerprint changes: the bytecode of the controller, its base classes and
+ * of the types reachable from their method signatures, API annotations (including implicit parameter data types and
+ * model parents and subtypes), fields and supertypes, together with its route entries.
+ */
+public final class ControllerFragments {
+
+    private static final ControllerFragments INSTANCE = new ControllerFragments();
+
+    private static final String[] SKIPPED_PACKAGES = {"java.", "javax.", "scala.", "play.", "akka."};
+
+    private final ConcurrentMap<String, Fragment> fragments = new ConcurrentHashMap<>();
+
+    public static ControllerFragments getInstance() {
+        return INSTANCE;
+    }
+
+    private static final class Fragment {
+        final String fingerprint;
+        final Swagger swagger;
+
+        Fragment(String fingerprint, Swagger swagger) {
+            this.fingerprint = fingerprint;
+            this.swagger = swagger;
+        }
+    }
+
+    Swagger get(Class<?> cls, Supplier<Swagger> reader) {
+        String fingerprint = fingerprint(cls);
+        Fragment fragment = fragments.get(cls.getName());
+        if (fragment != null && fragment.fingerprint.equals(fingerprint)) {
+            Logger.debug("Reusing API listing of unchanged controller " + cls.getName());
+            return fragment.swagger;
+        }
+        Swagger swagger = reader.get();
+        fragments.put(cls.getName(), new Fragment(fingerprint, swagger));
+        return swagger;
+    }
+
+    /**
+     * Forgets controllers that are no longer part of the scan
+     */
+    void retain(Set<Class<?>> classes) {
+        Set<String> names = new HashSet<>();
+        for (Class<?> cls : classes) {
+            names.add(cls.getName());
+        }
+        fragments.keySet().retainAll(names);
+    }
+
+    public void clear() {
+        fragments.clear();
+    }
+
+    private String fingerprint(Class<?> cls) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        PlaySwaggerConfig config = PlayConfigFactory.getConfig();
+        if (config != null && config.getBasePath() != null) {
+            digest.update(config.getBasePath().getBytes(StandardCharsets.UTF_8));
+        }
+
+        for (List<Route> routes : RouteFactory.getRoute().getActions(cls).values()) {
+            for (Route route : routes) {
+                digest.update(route.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collect(cls, types);
+        // actions may be inherited from a base controller
+        for (Class<?> type = cls; type != null && !isSkipped(type); type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                collect(method, cls.getClassLoader(), types);
+            }
+        }
+        for (Class<?> type : types) {
+            digest.update(type.getName().getBytes(StandardCharsets.UTF_8));
+            updateWithBytecode(digest, type);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private void collect(Method method, ClassLoader classLoader, Set<Class<?>> types) {
+        collect(method.getGenericReturnType(), types);
+        for (Type type : method.getGenericParameterTypes()) {
+            collect(type, types);
+        }
+        ApiOperation apiOperation = method.getAnnotation(ApiOperation.class);
+        if (apiOperation != null) {
+            collect(apiOperation.response(), types);
+        }
+        ApiResponses apiResponses = method.getAnnotation(ApiResponses.class);
+        if (apiResponses != null) {
+            for (ApiResponse apiResponse : apiResponses.value()) {
+                collect(apiResponse.response(), types);
+            }
+        }
+        ApiImplicitParams apiImplicitParams = method.getAnnotation(ApiImplicitParams.class);
+        if (apiImplicitParams != null) {
+            for (ApiImplicitParam apiImplicitParam : apiImplicitParams.value()) {
+                collect(apiImplicitParam.dataType(), classLoader, types);
+            }
+        }
+        ApiImplicitParam apiImplicitParam = method.getAnnotation(ApiImplicitParam.class);
+        if (apiImplicitParam != null) {
+            collect(apiImplicitParam.dataType(), classLoader, types);
+        }
+    }
+
+    // implicit parameters name their models by class name, e.g. dataType = "models.Pet"; primitive names are skipped
+    private void collect(String dataType, ClassLoader classLoader, Set<Class<?>> types) {
+        if (classLoader == null || dataType == null || dataType.indexOf('.') < 0) {
+            return;
+        }
+        try {
+            collect(Class.forName(dataType, false, classLoader), types);
+        } catch (ClassNotFoundException | LinkageError e) {
+            Logger.debug("Type " + dataType + " of an implicit parameter isn't a class, it's left out of the fingerprint");
+        }
+    }
+
+    private void collect(Type type, Set<Class<?>> types) {
+        if (type instanceof Class) {
+            Class<?> cls = (Class<?>) type;
+            if (cls.isArray()) {
+                collect(cls.getComponentType(), types);
+            } else if (!cls.isPrimitive() && !isSkipped(cls) && types.add(cls)) {
+                for (Field field : cls.getDeclaredFields()) {
+                    collect(field.getGenericType(), types);
+                }
+                collect(cls.getGenericSuperclass(), types);
+                for (Type supertype : cls.getGenericInterfaces()) {
+                    collect(supertype, types);
+                }
+                ApiModel apiModel = cls.getAnnotation(ApiModel.class);
+                if (apiModel != null) {
+                    collect(apiModel.parent(), types);
+                    for (Class<?> subType : apiModel.subTypes()) {
+                        collect(subType, types);
+                    }
+                }
+            }
+        } else if (type instanceof ParameterizedType) {
+            collect(((ParameterizedType) type).getRawType(), types);
+            for (Type argument : ((ParameterizedType) type).getActualTypeArguments()) {
+                collect(argument, types);
+            }
+        } else if (type instanceof GenericArrayType) {
+            collect(((GenericArrayType) type).getGenericComponentType(), types);
+        } else if (type instanceof WildcardType) {
+            for (Type bound : ((WildcardType) type).getUpperBounds()) {
+                collect(bound, types);
+            }
+        }
+    }
+
+    private static boolean isSkipped(Class<?> cls) {
+        for (String prefix : SKIPPED_PACKAGES) {
+            if (cls.getName().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void updateWithBytecode(MessageDigest digest, Class<?> cls) {
+        ClassLoader classLoader = cls.getClassLoader();
+        if (classLoader == null) {
+            return;
+        }
+        try (InputStream in = classLoader.getResourceAsStream(cls.getName().replace('.', '/') + ".class")) {
+            if (in == null) {
+                return;
+            }
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Logger.warn("Failed to read bytecode of " + cls.getName() + ", it will be read again on every scan", e);
+            digest.update(UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
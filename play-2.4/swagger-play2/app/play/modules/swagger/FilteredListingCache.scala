@@ -0,0 +1,57 @@
+package play.modules.swagger
+
+import io.swagger.models.Swagger
+
+import scala.collection.concurrent.TrieMap
+
+/**
+  * Least recently used cache of listings filtered by a CachingSpecFilter, along with their rendered bytes.
+  * Entries are keyed by the content hash of the listing, the filter cache key, the host and the resource,
+  * and are dropped by ApiListingCache whenever the cached listing is replaced.
+  */
+object FilteredListingCache {
+
+  class Entry(val swagger: Swagger) {
+    private val rendered = TrieMap.empty[(String, String), Array[Byte]]
+
+    def bytes(format: String, encoding: String): Array[Byte] = {
+      rendered.getOrElseUpdate((format, encoding), encoding match {
+        case RenderedListingCache.IDENTITY => RenderedListingCache.render(swagger, format)
+        case _ => RenderedListingCache.compress(bytes(format, RenderedListingCache.IDENTITY), encoding)
+      })
+    }
+
+    def cachedBytes(format: String, encoding: String): Option[Array[Byte]] = rendered.get((format, encoding))
+  }
+
+  private val entries = new java.util.LinkedHashMap[(String, String, String, Option[String]), Entry](16, 0.75f, true) {
+    override def removeEldestEntry(eldest: java.util.Map.Entry[(String, String, String, Option[String]), Entry]): Boolean = {
+      size() > maxSize
+    }
+  }
+
+  private def maxSize = Option(PlayConfigFactory.getConfig).map(_.getFilterCacheSize).getOrElse(0)
+
+  def get(key: String, contentHash: String, host: String, resource: Option[String])(filter: => Swagger): Entry = {
+    val cacheKey = (contentHash, key, host, resource)
+    entries.synchronized(Option(entries.get(cacheKey))) match {
+      case Some(entry) => entry
+      case None =>
+        // filtering runs outside the lock, concurrent misses for the same key just filter twice
+        val entry = new Entry(filter)
+        if (maxSize > 0) {
+          entries.synchronized(entries.put(cacheKey, entry))
+        }
+        entry
+    }
+  }
+
+  /**
+    * The filtered listing kept for the key, without filtering on a miss
+    */
+  def cached(key: String, contentHash: String, host: String, resource: Option[String]): Option[Entry] = {
+    entries.synchronized(Option(entries.get((contentHash, key, host, resource))))
+  }
+
+  def clear(): Unit = entries.synchronized(entries.clear())
+}
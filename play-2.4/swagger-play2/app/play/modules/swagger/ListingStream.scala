@@ -0,0 +1,119 @@
+package play.modules.swagger
+
+import java.io.{IOException, OutputStream}
+import java.util.concurrent.{ArrayBlockingQueue, TimeUnit}
+
+import play.api.Logger
+import play.api.libs.iteratee.Enumerator
+
+import scala.concurrent.{ExecutionContext, Future, Promise}
+
+/**
+  * Serializes a listing straight into the response body.
+  * The Jackson generator writes into fixed size chunks handed to the response through a bounded queue,
+  * so the document is never held in memory as a whole and serialization waits for slow clients
+  * instead of buffering. The writer runs on SwaggerDispatcher.blockingContext, so a slow client holds up
+  * one thread of that bounded pool rather than a dispatcher thread; reading chunks never blocks.
+  * Chunks are fresh arrays rather than pooled ones: the response may still hold a chunk when the writer
+  * moves on, so reusing it could corrupt the body. They are small enough to never be humongous allocations.
+  */
+object ListingStream {
+
+  val ChunkSize = 8192
+
+  private val QueuedChunks = 8
+
+  private val End = new Array[Byte](0)
+
+  def enumerate(data: AnyRef, format: String)(implicit ec: ExecutionContext): Enumerator[Array[Byte]] = {
+    val queue = new ArrayBlockingQueue[Array[Byte]](QueuedChunks)
+    val out = new ChunkOutputStream(queue)
+    Future {
+      try {
+        RenderedListingCache.writer(format).writeValue(out, data)
+      } catch {
+        case ex: IOException => Logger("swagger").debug("Stopped streaming API listing: " + ex.getMessage)
+        case ex: Exception => Logger("swagger").error("Failed to stream API listing", ex)
+      } finally {
+        out.close()
+      }
+    }(SwaggerDispatcher.blockingContext)
+    Enumerator.generateM(out.next()).onDoneEnumerating(out.cancel())
+  }
+
+  private class ChunkOutputStream(queue: ArrayBlockingQueue[Array[Byte]]) extends OutputStream {
+    // set when the response stops reading, e.g. the client disconnected
+    @volatile private var cancelled = false
+    // completed by the writer when the response waits for a chunk, so reading never blocks a thread
+    private var waiting: Option[Promise[Unit]] = None
+    private var closed = false
+    private var chunk = new Array[Byte](ChunkSize)
+    private var count = 0
+
+    def cancel(): Unit = cancelled = true
+
+    def next()(implicit ec: ExecutionContext): Future[Option[Array[Byte]]] = {
+      Option(queue.poll()) match {
+        case Some(chunk) => Future.successful(if (chunk eq End) None else Some(chunk))
+        case None =>
+          val promise = Promise[Unit]()
+          synchronized {
+            waiting = Some(promise)
+          }
+          // a chunk enqueued before the promise was set
+          if (!queue.isEmpty) promise.trySuccess(())
+          promise.future.flatMap(_ => next())
+      }
+    }
+
+    override def write(b: Int): Unit = {
+      if (count == ChunkSize) emit()
+      chunk(count) = b.toByte
+      count += 1
+    }
+
+    override def write(b: Array[Byte], off: Int, len: Int): Unit = {
+      var written = 0
+      while (written < len) {
+        if (count == ChunkSize) emit()
+        val n = math.min(len - written, ChunkSize - count)
+        System.arraycopy(b, off + written, chunk, count, n)
+        count += n
+        written += n
+      }
+    }
+
+    // chunks are only handed over when full, flushing the generator doesn't send partial chunks
+    override def flush(): Unit = {}
+
+    override def close(): Unit = {
+      if (!closed) {
+        closed = true
+        try {
+          if (count > 0) {
+            enqueue(java.util.Arrays.copyOf(chunk, count))
+          }
+          enqueue(End)
+        } catch {
+          case ex: IOException =>
+        }
+      }
+    }
+
+    private def emit(): Unit = {
+      enqueue(chunk)
+      chunk = new Array[Byte](ChunkSize)
+      count = 0
+    }
+
+    private def enqueue(bytes: Array[Byte]): Unit = {
+      while (!queue.offer(bytes, 1, TimeUnit.SECONDS)) {
+        if (cancelled) throw new IOException("response closed")
+      }
+      synchronized {
+        waiting.foreach(_.trySuccess(()))
+        waiting = None
+      }
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package play.modules.swagger
+
+import java.io.ByteArrayOutputStream
+import java.util.regex.Pattern
+import javax.xml.stream.{XMLOutputFactory, XMLStreamWriter}
+
+import com.fasterxml.jackson.databind.JsonNode
+import io.swagger.models.Swagger
+import io.swagger.util.Json
+
+import scala.collection.JavaConverters._
+
+/**
+  * Renders API listings as XML for the .xml variants of the documentation routes.
+  * Swagger 2.0 models aren't JAXB beans (models, parameters and properties are interfaces), so the listing
+  * is written from its JSON tree: fields become elements, array items repeat the element of their field,
+  * and keys which aren't XML names, e.g. paths and response codes, become entry elements with a name attribute.
+  */
+object ListingXml {
+
+  val Root = "swagger"
+
+  val Entry = "entry"
+
+  private val XmlName = Pattern.compile("[A-Za-z_][A-Za-z0-9_.-]*")
+
+  private val factory = XMLOutputFactory.newInstance()
+
+  def render(swagger: Swagger): Array[Byte] = {
+    val out = new ByteArrayOutputStream(8192)
+    val writer = factory.createXMLStreamWriter(out, "UTF-8")
+    try {
+      writer.writeStartDocument("UTF-8", "1.0")
+      writeField(writer, Root, Json.mapper().valueToTree[JsonNode](swagger))
+      writer.writeEndDocument()
+    } finally {
+      writer.close()
+    }
+    out.toByteArray
+  }
+
+  private def writeField(writer: XMLStreamWriter, name: String, node: JsonNode): Unit = {
+    if (node.isArray) {
+      node.elements.asScala.foreach(writeField(writer, name, _))
+    } else {
+      if (XmlName.matcher(name).matches) {
+        writer.writeStartElement(name)
+      } else {
+        writer.writeStartElement(Entry)
+        writer.writeAttribute("name", name)
+      }
+      if (node.isObject) {
+        node.fields.asScala.foreach(field => writeField(writer, field.getKey, field.getValue))
+      } else if (!node.isNull) {
+        writer.writeCharacters(node.asText)
+      }
+      writer.writeEndElement()
+    }
+  }
+}
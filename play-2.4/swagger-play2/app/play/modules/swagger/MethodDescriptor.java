@@ -0,0 +1,119 @@
+package play.modules.swagger;
+
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponses;
+import io.swagger.util.Json;
+import io.swagger.util.ReflectionUtils;
+import play.Logger;
+import play.routes.compiler.Route;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * What the reader needs to know about a routed controller method, resolved once: its parameter types resolved
+ * against the controller class, its parameter and API annotations, and the routes it is bound to.
+ * Descriptors are kept with the controller class, so they go away with the class loader on a dev mode reload.
+ */
+final class MethodDescriptor {
+
+    private static final ClassValue<ConcurrentMap<Method, MethodDescriptor>> DESCRIPTORS =
+            new ClassValue<ConcurrentMap<Method, MethodDescriptor>>() {
+                @Override
+                protected ConcurrentMap<Method, MethodDescriptor> computeValue(Class<?> cls) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    final Method method;
+    final List<Route> routes;
+    final ApiOperation apiOperation;
+    final ApiResponses apiResponses;
+    final ApiImplicitParams implicitParams;
+    final boolean deprecated;
+    final Type returnType;
+    private final List<Type> parameterTypes;
+    private final List<List<Annotation>> parameterAnnotations;
+
+    private MethodDescriptor(Class<?> cls, Method method, List<Route> routes) {
+        this.method = method;
+        this.routes = routes;
+        this.apiOperation = ReflectionUtils.getAnnotation(method, ApiOperation.class);
+        this.apiResponses = ReflectionUtils.getAnnotation(method, ApiResponses.class);
+        this.implicitParams = method.getAnnotation(ApiImplicitParams.class);
+        this.deprecated = ReflectionUtils.getAnnotation(method, Deprecated.class) != null;
+        this.returnType = method.getGenericReturnType();
+
+        List<Type> types = new ArrayList<>();
+        for (Type type : method.getGenericParameterTypes()) {
+            try {
+                types.add(Json.mapper().getTypeFactory().constructType(type, cls));
+            } catch (Exception e) {
+                Logger.error(String.format("Exception getting parameter type %s of method %s", type, method.getName()), e);
+                types.add(null);
+            }
+        }
+        this.parameterTypes = Collections.unmodifiableList(types);
+
+        List<List<Annotation>> annotations = new ArrayList<>();
+        for (Annotation[] parameter : method.getParameterAnnotations()) {
+            annotations.add(Collections.unmodifiableList(Arrays.asList(parameter)));
+        }
+        this.parameterAnnotations = Collections.unmodifiableList(annotations);
+    }
+
+    // same method bound to other routes, e.g. after the routes were replaced
+    private MethodDescriptor(MethodDescriptor descriptor, List<Route> routes) {
+        this.method = descriptor.method;
+        this.routes = routes;
+        this.apiOperation = descriptor.apiOperation;
+        this.apiResponses = descriptor.apiResponses;
+        this.implicitParams = descriptor.implicitParams;
+        this.deprecated = descriptor.deprecated;
+        this.returnType = descriptor.returnType;
+        this.parameterTypes = descriptor.parameterTypes;
+        this.parameterAnnotations = descriptor.parameterAnnotations;
+    }
+
+    /**
+     * The descriptor of the given method of a controller, bound to the given routes
+     */
+    static MethodDescriptor of(Class<?> cls, Method method, List<Route> routes) {
+        ConcurrentMap<Method, MethodDescriptor> descriptors = DESCRIPTORS.get(cls);
+        MethodDescriptor descriptor = descriptors.get(method);
+        if (descriptor == null) {
+            descriptor = new MethodDescriptor(cls, method, routes);
+            descriptors.put(method, descriptor);
+        } else if (descriptor.routes != routes) {
+            descriptor = new MethodDescriptor(descriptor, routes);
+            descriptors.put(method, descriptor);
+        }
+        return descriptor;
+    }
+
+    /**
+     * The type of the parameter at the given position, null when the method has no such parameter
+     */
+    Type parameterType(int position) {
+        if (position < 0 || position >= parameterTypes.size()) {
+            Logger.error(String.format("No parameter at position %d of method %s", position, method.getName()));
+            return null;
+        }
+        return parameterTypes.get(position);
+    }
+
+    /**
+     * The annotations of the parameter at the given position, falling back to those of the first parameter
+     */
+    List<Annotation> parameterAnnotations(int position) {
+        if (position >= 0 && position < parameterAnnotations.size()) {
+            return parameterAnnotations.get(position);
+        }
+        return parameterAnnotations.isEmpty() ? null : parameterAnnotations.get(0);
+    }
+}
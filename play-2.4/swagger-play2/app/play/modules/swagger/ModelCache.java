@@ -0,0 +1,65 @@
+package play.modules.swagger;
+
+import com.fasterxml.jackson.databind.JavaType;
+import io.swagger.converter.ModelConverters;
+import io.swagger.models.Model;
+import io.swagger.models.properties.Property;
+import io.swagger.util.Json;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Properties and models resolved by the swagger model converters, by Jackson type, so the model graph of a type
+ * referenced by many operations is only walked once.
+ * A cache lives for one scan, or until the application stops when shared between scans; converters must be
+ * registered before the first scan.
+ * Cached properties and models are shared by every operation referencing the type and must not be modified.
+ */
+public final class ModelCache {
+
+    private static final ModelCache SHARED = new ModelCache();
+
+    private final ConcurrentMap<JavaType, Optional<Property>> properties = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<JavaType, Map<String, Model>> models = new ConcurrentHashMap<>();
+
+    public static ModelCache getShared() {
+        return SHARED;
+    }
+
+    /**
+     * The cache for a new scan: the shared one when configured, otherwise a new one
+     */
+    static ModelCache forScan() {
+        PlaySwaggerConfig config = PlayConfigFactory.getConfig();
+        return config != null && config.isSharedModelCache() ? SHARED : new ModelCache();
+    }
+
+    public Property readAsProperty(Type type) {
+        return properties.computeIfAbsent(key(type),
+                key -> Optional.ofNullable(ModelConverters.getInstance().readAsProperty(type))).orElse(null);
+    }
+
+    /**
+     * The models of the given type and of all the types reachable from it
+     */
+    public Map<String, Model> readAll(Type type) {
+        return models.computeIfAbsent(key(type),
+                key -> Collections.unmodifiableMap(new LinkedHashMap<>(ModelConverters.getInstance().readAll(type))));
+    }
+
+    public void clear() {
+        properties.clear();
+        models.clear();
+    }
+
+    private static JavaType key(Type type) {
+        return Json.mapper().constructType(type);
+    }
+}
@@ -1,14 +1,18 @@
 package play.modules.swagger
 
+import java.io.{BufferedInputStream, DataInputStream}
+
 import io.swagger.annotations.Api
 import io.swagger.config._
 import io.swagger.models.{Contact, Info, License, Scheme, Swagger}
+import javassist.bytecode.{AnnotationsAttribute, ClassFile}
 import org.apache.commons.lang3.StringUtils
 import play.api.Logger
 import play.modules.swagger.util.SwaggerContext
 
 import scala.collection.JavaConversions._
 import scala.collection.JavaConverters._
+import scala.util.control.NonFatal
 
 /**
   * Identifies Play Controllers annotated as Swagger API's.
@@ -72,33 +76,73 @@ class PlayApiScanner() extends Scanner with SwaggerConfig {
     Logger("swagger").info("ControllerScanner - looking for controllers with API annotation")
 
 
-    var routes = RouteFactory.getRoute().getAll().toList
-
     // get controller names from application routes
-    val controllers = routes.map { case (_, route) =>
-      s"${route.call.packageName}.${route.call.controller}"
-    }.distinct
+    val controllers = RouteFactory.getRoute().getControllers().toList
 
 
-    var list = controllers.collect {
-      case className: String if {
-        try {
-          SwaggerContext.loadClass(className).getAnnotation(classOf[Api]) != null
-        } catch {
-          case ex: Exception => {
-            Logger("swagger").error("Problem loading class:  %s. %s: %s".format(className, ex.getClass.getName, ex.getMessage))
-            false
-          }
+    val list = controllers.flatMap { className =>
+      try {
+        apiClass(className).map { cls =>
+          Logger("swagger").info("Found API controller:  %s".format(className))
+          cls
+        }
+      } catch {
+        case ex: Exception => {
+          Logger("swagger").error("Problem loading class:  %s. %s: %s".format(className, ex.getClass.getName, ex.getMessage))
+          None
         }
-      } =>
-        Logger("swagger").info("Found API controller:  %s".format(className))
-        SwaggerContext.loadClass(className)
+      }
     }
 
     list.toSet.asJava
 
   }
 
+  private def apiClass(className: String): Option[Class[_]] = {
+    val bytecode = Option(PlayConfigFactory.getConfig).exists(_.isBytecodeScan)
+    if (bytecode) {
+      hasApiAnnotation(className) match {
+        case Some(true) => Some(SwaggerContext.loadClass(className, false))
+        case Some(false) => None
+        case None => Some(SwaggerContext.loadClass(className)).filter(_.getAnnotation(classOf[Api]) != null)
+      }
+    } else {
+      Some(SwaggerContext.loadClass(className)).filter(_.getAnnotation(classOf[Api]) != null)
+    }
+  }
+
+  /**
+    * Looks for the Api annotation in the class files of the class and its superclasses, without loading them.
+    * None when a class file can't be found, e.g. for classes generated at runtime, or can't be parsed,
+    * e.g. when it was written for a newer JVM than javassist understands; the class is then checked by reflection.
+    */
+  private def hasApiAnnotation(className: String): Option[Boolean] = {
+    if (className == null || className.startsWith("java.") || className.startsWith("scala.")) {
+      Some(false)
+    } else {
+      Option(SwaggerContext.getResourceAsStream(className.replace('.', '/') + ".class")).flatMap { stream =>
+        val classFile = try {
+          Some(new ClassFile(new DataInputStream(new BufferedInputStream(stream))))
+        } catch {
+          case NonFatal(ex) =>
+            Logger("swagger").warn("Can't read the class file of " + className + ", checking it by reflection: " + ex)
+            None
+        } finally {
+          stream.close()
+        }
+        classFile.flatMap { classFile =>
+          val annotations = classFile.getAttribute(AnnotationsAttribute.visibleTag).asInstanceOf[AnnotationsAttribute]
+          if (annotations != null && annotations.getAnnotation(classOf[Api].getName) != null) {
+            Some(true)
+          } else {
+            // the Api annotation is inherited
+            hasApiAnnotation(classFile.getSuperclass)
+          }
+        }
+      }
+    }
+  }
+
   override def getPrettyPrint(): Boolean = {
     true;
   }
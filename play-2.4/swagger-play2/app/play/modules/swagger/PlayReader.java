@@ -3,7 +3,6 @@ package play.modules.swagger;
 import com.fasterxml.jackson.databind.JavaType;
 import io.swagger.annotations.*;
 import io.swagger.annotations.Info;
-import io.swagger.converter.ModelConverters;
 import io.swagger.models.*;
 import io.swagger.models.Contact;
 import io.swagger.models.ExternalDocs;
@@ -20,14 +19,14 @@ import org.apache.commons.lang3.StringUtils;
 import play.Logger;
 import play.modules.swagger.util.CrossUtil;
 import play.routes.compiler.*;
-import scala.Option;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class PlayReader {
 
@@ -35,12 +34,19 @@ public class PlayReader {
 
     private Swagger swagger;
 
+    private final ModelCache modelCache;
+
     public Swagger getSwagger() {
         return swagger;
     }
 
     public PlayReader(Swagger swagger) {
+        this(swagger, ModelCache.forScan());
+    }
+
+    PlayReader(Swagger swagger, ModelCache modelCache) {
         this.swagger = swagger == null ? new Swagger() : swagger;
+        this.modelCache = modelCache;
     }
 
     public Swagger read(Set<Class<?>> classes) {
@@ -53,12 +59,100 @@ public class PlayReader {
             }
         }
 
-        for (Class<?> cls : classes) {
-            read(cls);
+        PlaySwaggerConfig config = PlayConfigFactory.getConfig();
+        int parallelism = config == null ? 0 : config.getReaderParallelism();
+        return read(classes, parallelism);
+    }
+
+    /**
+     * Reads the given classes, using up to parallelism threads when it is greater than one.
+     * Each class is read into its own partial spec; partial specs are merged in the iteration order
+     * of the classes, so the result is the same as reading them one after another.
+     * In incremental mode the partial specs of unchanged controllers are reused from the previous scan.
+     */
+    public Swagger read(Set<Class<?>> classes, int parallelism) {
+        PlaySwaggerConfig config = PlayConfigFactory.getConfig();
+        final ControllerFragments fragments = config != null && config.isIncremental() ? ControllerFragments.getInstance() : null;
+        if (fragments == null && (parallelism <= 1 || classes.size() <= 1)) {
+            for (Class<?> cls : classes) {
+                read(cls);
+            }
+            return swagger;
+        }
+
+        if (parallelism <= 1 || classes.size() <= 1) {
+            for (Class<?> cls : classes) {
+                merge(readPartial(cls, fragments, modelCache));
+            }
+            fragments.retain(classes);
+            return swagger;
+        }
+
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Future<Swagger>> partials = new ArrayList<>();
+            for (final Class<?> cls : classes) {
+                partials.add(pool.submit(() -> {
+                    // route and parameter types are resolved through the context class loader
+                    Thread.currentThread().setContextClassLoader(contextClassLoader);
+                    return readPartial(cls, fragments, modelCache);
+                }));
+            }
+            for (Future<Swagger> partial : partials) {
+                merge(partial.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading API classes", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed to read API classes", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        if (fragments != null) {
+            fragments.retain(classes);
         }
         return swagger;
     }
 
+    // classes read into partial specs share the model cache of the scan
+    private static Swagger readPartial(Class<?> cls, ControllerFragments fragments, ModelCache modelCache) {
+        if (fragments == null) {
+            return new PlayReader(null, modelCache).read(cls);
+        }
+        return fragments.get(cls, () -> new PlayReader(null, modelCache).read(cls));
+    }
+
+    // partial specs may be kept for later scans, so their paths are copied rather than shared
+    private void merge(Swagger partial) {
+        if (partial.getTags() != null) {
+            for (Tag tag : partial.getTags()) {
+                getSwagger().tag(tag);
+            }
+        }
+        if (partial.getPaths() != null) {
+            for (Map.Entry<String, Path> entry : partial.getPaths().entrySet()) {
+                Path path = getSwagger().getPath(entry.getKey());
+                if (path == null) {
+                    path = new Path();
+                    getSwagger().path(entry.getKey(), path);
+                }
+                for (Map.Entry<HttpMethod, Operation> operation : entry.getValue().getOperationMap().entrySet()) {
+                    path.set(operation.getKey().name().toLowerCase(), operation.getValue());
+                }
+            }
+        }
+        if (partial.getDefinitions() != null) {
+            for (Map.Entry<String, Model> entry : partial.getDefinitions().entrySet()) {
+                getSwagger().model(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     public Swagger read(Class<?> cls) {
         return read(cls, false);
     }
@@ -114,91 +208,102 @@ public class PlayReader {
                 }
             }
 
-            // parse the method
-            Method methods[] = cls.getMethods();
-            for (Method method : methods) {
-                if (ReflectionUtils.isOverriddenMethod(method, cls)) {
-                    continue;
-                }
-                // complete name as stored in route
-                String fullMethodName = getFullMethodName(cls, method);
-
-                if (!routes.exists(fullMethodName)) {
-                    continue;
+            // parse the routed methods, in the order of the routes
+            Map<String, List<Route>> actions = routes.getActions(cls);
+            Map<String, List<Method>> methods = new HashMap<>();
+            for (Method method : cls.getMethods()) {
+                if (actions.containsKey(method.getName())) {
+                    methods.computeIfAbsent(method.getName(), name -> new ArrayList<>()).add(method);
                 }
-                Route route = routes.get(fullMethodName);
-
-                String operationPath = getPathFromRoute(route.path(), config.basePath);
-
-                if (operationPath != null) {
-                    final ApiOperation apiOperation = ReflectionUtils.getAnnotation(method, ApiOperation.class);
-
-                    String httpMethod = extractOperationMethod(apiOperation, method, route);
-                    Operation operation = null;
-                    if (apiOperation != null || httpMethod != null) {
-                        operation = parseMethod(cls, method, route);
-                    }
-
-                    if (operation == null) {
+            }
+            for (Map.Entry<String, List<Route>> action : actions.entrySet()) {
+                for (Method method : methods.getOrDefault(action.getKey(), Collections.emptyList())) {
+                    if (ReflectionUtils.isOverriddenMethod(method, cls)) {
                         continue;
                     }
+                    final MethodDescriptor descriptor = MethodDescriptor.of(cls, method, action.getValue());
+                    final ApiOperation apiOperation = descriptor.apiOperation;
+
+                    // an action bound to several routes is documented for each of them; like the router,
+                    // only the first of several routes with the same verb and path counts
+                    Set<String> routed = new HashSet<>();
+                    for (Route route : descriptor.routes) {
+                        String operationPath = getPathFromRoute(route.path(), config.basePath);
+
+                        if (operationPath != null && routed.add(route.verb().value() + " " + operationPath)) {
+                            String httpMethod = extractOperationMethod(apiOperation, method, route);
+                            Operation operation = null;
+                            if (apiOperation != null || httpMethod != null) {
+                                operation = parseMethod(cls, descriptor, route);
+                            }
 
-                    if (apiOperation != null) {
-                        for (Scheme scheme : parseSchemes(apiOperation.protocols())) {
-                            operation.scheme(scheme);
-                        }
-                    }
-
-                    if (operation.getSchemes() == null || operation.getSchemes().isEmpty()) {
-                        for (Scheme scheme : globalSchemes) {
-                            operation.scheme(scheme);
-                        }
-                    }
-                    // can't continue without a valid http method
-                    if (httpMethod != null) {
-                        if (apiOperation != null) {
-                            for (String tag : apiOperation.tags()) {
-                                if (!"".equals(tag)) {
-                                    operation.tag(tag);
-                                    getSwagger().tag(new Tag().name(tag));
-                                }
+                            if (operation == null) {
+                                continue;
                             }
 
-                            operation.getVendorExtensions().putAll(BaseReaderUtils.parseExtensions(apiOperation.extensions()));
-                        }
-                        if (operation.getConsumes() == null) {
-                            for (String mediaType : consumes) {
-                                operation.consumes(mediaType);
+                            // operation ids must be unique, the second and later routes get their number
+                            if (routed.size() > 1 && operation.getOperationId() != null) {
+                                operation.setOperationId(operation.getOperationId() + "_" + routed.size());
                             }
-                        }
-                        if (operation.getProduces() == null) {
-                            for (String mediaType : produces) {
-                                operation.produces(mediaType);
+
+                            if (apiOperation != null) {
+                                for (Scheme scheme : parseSchemes(apiOperation.protocols())) {
+                                    operation.scheme(scheme);
+                                }
                             }
-                        }
 
-                        if (operation.getTags() == null) {
-                            for (String tagString : tags.keySet()) {
-                                operation.tag(tagString);
+                            if (operation.getSchemes() == null || operation.getSchemes().isEmpty()) {
+                                for (Scheme scheme : globalSchemes) {
+                                    operation.scheme(scheme);
+                                }
                             }
-                        }
-                        // Only add global @Api securities if operation doesn't already have more specific securities
-                        if (operation.getSecurity() == null) {
-                            for (SecurityRequirement security : securities) {
-                                operation.security(security);
+                            // can't continue without a valid http method
+                            if (httpMethod != null) {
+                                if (apiOperation != null) {
+                                    for (String tag : apiOperation.tags()) {
+                                        if (!"".equals(tag)) {
+                                            operation.tag(tag);
+                                            getSwagger().tag(new Tag().name(tag));
+                                        }
+                                    }
+
+                                    operation.getVendorExtensions().putAll(BaseReaderUtils.parseExtensions(apiOperation.extensions()));
+                                }
+                                if (operation.getConsumes() == null) {
+                                    for (String mediaType : consumes) {
+                                        operation.consumes(mediaType);
+                                    }
+                                }
+                                if (operation.getProduces() == null) {
+                                    for (String mediaType : produces) {
+                                        operation.produces(mediaType);
+                                    }
+                                }
+
+                                if (operation.getTags() == null) {
+                                    for (String tagString : tags.keySet()) {
+                                        operation.tag(tagString);
+                                    }
+                                }
+                                // Only add global @Api securities if operation doesn't already have more specific securities
+                                if (operation.getSecurity() == null) {
+                                    for (SecurityRequirement security : securities) {
+                                        operation.security(security);
+                                    }
+                                }
+                                Path path = getSwagger().getPath(operationPath);
+                                if (path == null) {
+                                    path = new Path();
+                                    getSwagger().path(operationPath, path);
+                                }
+                                path.set(httpMethod, operation);
+                                try {
+                                    readImplicitParameters(descriptor, operation, cls);
+                                } catch (Exception e) {
+                                    throw e;
+                                }
                             }
                         }
-                        Path path = getSwagger().getPath(operationPath);
-                        if (path == null) {
-                            path = new Path();
-                            getSwagger().path(operationPath, path);
-                        }
-                        path.set(httpMethod, operation);
-                        try {
-                            readImplicitParameters(method, operation, cls);
-                        } catch (Exception e) {
-                            throw e;
-                        }
                     }
                 }
             }
@@ -353,8 +458,8 @@ public class PlayReader {
         info.getVendorExtensions().putAll(BaseReaderUtils.parseExtensions(infoConfig.extensions()));
     }
 
-    private void readImplicitParameters(Method method, Operation operation, Class<?> cls) {
-        ApiImplicitParams implicitParams = method.getAnnotation(ApiImplicitParams.class);
+    private void readImplicitParameters(MethodDescriptor descriptor, Operation operation, Class<?> cls) {
+        ApiImplicitParams implicitParams = descriptor.implicitParams;
         if (implicitParams != null && implicitParams.value().length > 0) {
             for (ApiImplicitParam param : implicitParams.value()) {
                 Parameter p = readImplicitParam(param, cls);
@@ -403,23 +508,19 @@ public class PlayReader {
         if (primitive != null) {
             return primitive.getKeyClass();
         }
-        try {
-            Type routeType = getOptionTypeFromString (type, cls);
-
-            if (routeType != null) return routeType;
-
-            return Thread.currentThread().getContextClassLoader().loadClass(type);
-        } catch (Exception e) {
-            Logger.error(String.format("Failed to resolve '%s' into class", type), e);
+        final JavaType routeType = RouteTypes.resolve(type, cls.getClassLoader());
+        if (routeType == null) {
+            Logger.error(String.format("Failed to resolve '%s' into class", type));
         }
-        return null;
+        return routeType;
     }
 
-    private Operation parseMethod(Class<?> cls, Method method, Route route) {
+    private Operation parseMethod(Class<?> cls, MethodDescriptor descriptor, Route route) {
         Operation operation = new Operation();
 
-        ApiOperation apiOperation = ReflectionUtils.getAnnotation(method, ApiOperation.class);
-        ApiResponses responseAnnotation = ReflectionUtils.getAnnotation(method, ApiResponses.class);
+        Method method = descriptor.method;
+        ApiOperation apiOperation = descriptor.apiOperation;
+        ApiResponses responseAnnotation = descriptor.apiResponses;
 
         String operationId = method.getName();
         operation.operationId(operationId);
@@ -481,10 +582,10 @@ public class PlayReader {
             operation.addResponse(String.valueOf(apiOperation.code()), response);
         } else if (responseType == null) {
             // pick out response from method declaration
-            responseType = method.getGenericReturnType();
+            responseType = descriptor.returnType;
         }
         if (isValidResponse(responseType)) {
-            final Property property = ModelConverters.getInstance().readAsProperty(responseType);
+            final Property property = modelCache.readAsProperty(responseType);
             if (property != null) {
                 final Property responseProperty = ContainerWrapper.wrapContainer(responseContainer, property);
                 final int responseCode = apiOperation == null ? 200 : apiOperation.code();
@@ -514,7 +615,7 @@ public class PlayReader {
                     response.schema(new RefProperty(apiResponse.reference()));
                 } else if (!isVoid(apiResponse.response())) {
                     responseType = apiResponse.response();
-                    final Property property = ModelConverters.getInstance().readAsProperty(responseType);
+                    final Property property = modelCache.readAsProperty(responseType);
                     if (property != null) {
                         response.schema(ContainerWrapper.wrapContainer(apiResponse.responseContainer(), property));
                         appendModels(responseType);
@@ -522,12 +623,12 @@ public class PlayReader {
                 }
             }
         }
-        if (ReflectionUtils.getAnnotation(method, Deprecated.class) != null) {
+        if (descriptor.deprecated) {
             operation.setDeprecated(true);
         }
 
 
-        List<Parameter> parameters = getParameters(cls, method, route);
+        List<Parameter> parameters = getParameters(cls, descriptor, route);
 
         parameters.forEach(operation::parameter);
 
@@ -539,85 +640,17 @@ public class PlayReader {
     }
 
 
-    final static class OptionTypeResolver {
-        private Option<Integer> optionTypeInt;
-        private Option<Long> optionTypeLong;
-        private Option<Byte> optionTypeByte;
-        private Option<Boolean> optionTypeBoolean;
-        private Option<Character> optionTypeChar;
-        private Option<Float> optionTypeFloat;
-        private Option<Double> optionTypeDouble;
-        private Option<Short> optionTypeShort;
-
-        static Type resolveOptionType (String innerType, Class<?> cls) {
-            try {
-                return Json.mapper().getTypeFactory().constructType(
-                        OptionTypeResolver.class.getDeclaredField("optionType" + innerType).getGenericType(), cls);
-            } catch (NoSuchFieldException e) {
-                return null;
-            }
-        }
-    }
-
-    private static Type getOptionTypeFromString (String simpleTypeName, Class<?> cls) {
-
-        if (simpleTypeName == null) return null;
-        String regex = "(Option|scala\\.Option)\\s*\\[\\s*(Int|Long|Float|Double|Byte|Short|Char|Boolean)\\s*\\]\\s*$";
-
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(simpleTypeName);
-        if (matcher.find())
-        {
-            String enhancedType = matcher.group(2);
-            return OptionTypeResolver.resolveOptionType(enhancedType, cls);
-        } else {
-            return null;
-        }
-    }
-
-    private Type getParamType(Class<?> cls, Method method, String simpleTypeName, int position) {
-
-        try {
-            Type type = getOptionTypeFromString (simpleTypeName, cls);
-            if (type != null) return type;
-
-            Type[] genericParameterTypes = method.getGenericParameterTypes();
-            return Json.mapper().getTypeFactory().constructType(genericParameterTypes[position], cls);
-        } catch (Exception e) {
-            Logger.error(String.format("Exception getting parameter type for method %s, param %s at position %d"), e);
-            return null;
+    // the routes file keeps the type arguments erased from the method signature, e.g. of Option[Int] or List[Long]
+    private Type getParamType(Class<?> cls, MethodDescriptor descriptor, String simpleTypeName, int position) {
+        final JavaType routeType = RouteTypes.resolve(simpleTypeName, cls.getClassLoader());
+        if (routeType != null && (routeType.containedTypeCount() > 0 || routeType.isArrayType())) {
+            return routeType;
         }
-
+        final Type type = descriptor.parameterType(position);
+        return type != null ? type : routeType;
     }
 
-    private List<Annotation> getParamAnnotations(Class<?> cls, Type[] genericParameterTypes, Annotation[][] paramAnnotations, String simpleTypeName, int fieldPosition) {
-        try {
-            return Arrays.asList(paramAnnotations[fieldPosition]);
-        } catch (Exception e) {
-            Logger.error(String.format("Exception getting parameter type for method %s, param %s at position %d"), e);
-            return null;
-        }
-    }
-
-    private List<Annotation> getParamAnnotations(Class<?> cls, Method method, String simpleTypeName, int fieldPosition) {
-        Type[] genericParameterTypes = method.getGenericParameterTypes();
-        Annotation[][] paramAnnotations = method.getParameterAnnotations();
-        List<Annotation> annotations = getParamAnnotations(cls, genericParameterTypes, paramAnnotations, simpleTypeName, fieldPosition);
-        if (annotations != null) {
-            return annotations;
-        }
-
-        // Fallback to type
-        for (int i = 0; i < genericParameterTypes.length; i++) {
-            annotations = getParamAnnotations(cls, genericParameterTypes, paramAnnotations, simpleTypeName, i);
-            if (annotations != null) {
-                return annotations;
-            }
-        }
-        return null;
-    }
-
-    private List<Parameter> getParameters(Class<?> cls, Method method, Route route) {
+    private List<Parameter> getParameters(Class<?> cls, MethodDescriptor descriptor, Route route) {
         // TODO now consider only parameters defined in route, excluding body parameters
         // understand how to possibly infer body/form params e.g. from @BodyParser or other annotation
 
@@ -636,7 +669,7 @@ public class PlayReader {
             if (def.startsWith("\"") && def.endsWith("\"")){
                 def = def.substring(1,def.length()-1);
             }
-            Type type = getParamType(cls, method, p.typeName(), fieldPosition);
+            Type type = getParamType(cls, descriptor, p.typeName(), fieldPosition);
             Property schema = createProperty(type);
             if (route.path().has(p.name())) {
                 // it's a path param
@@ -650,7 +683,7 @@ public class PlayReader {
                 if (schema != null) ((QueryParameter)parameter).setProperty(schema);
             }
             parameter.setName(p.name());
-            List<Annotation> annotations = getParamAnnotations(cls, method, p.typeName(), fieldPosition);
+            List<Annotation> annotations = descriptor.parameterAnnotations(fieldPosition);
             ParameterProcessor.applyAnnotations(getSwagger(), parameter, type, annotations);
             parameters.add(parameter);
             fieldPosition++;
@@ -711,9 +744,11 @@ public class PlayReader {
     }
 
     private Property createProperty(Type type) {
-        return enforcePrimitive(ModelConverters.getInstance().readAsProperty(type), 0);
+        return type == null ? null : enforcePrimitive(modelCache.readAsProperty(type), 0);
     }
 
+    // cached properties are shared, so arrays are copied rather than changed in place; their items are copied too,
+    // as the allowable values of a parameter are merged into them
     private Property enforcePrimitive(Property in, int level) {
         if (in instanceof RefProperty) {
             return new StringProperty();
@@ -721,7 +756,15 @@ public class PlayReader {
         if (in instanceof ArrayProperty) {
             if (level == 0) {
                 final ArrayProperty array = (ArrayProperty) in;
-                array.setItems(enforcePrimitive(array.getItems(), level + 1));
+                final Property items = enforcePrimitive(array.getItems(), level + 1);
+                final ArrayProperty copy = new ArrayProperty(items == array.getItems() ? copy(items) : items);
+                copy.setUniqueItems(array.getUniqueItems());
+                copy.setMinItems(array.getMinItems());
+                copy.setMaxItems(array.getMaxItems());
+                copy.setDescription(array.getDescription());
+                copy.setTitle(array.getTitle());
+                copy.setXml(array.getXml());
+                return copy;
             } else {
                 return new StringProperty();
             }
@@ -729,8 +772,12 @@ public class PlayReader {
         return in;
     }
 
+    private static Property copy(Property property) {
+        return property == null ? null : Json.mapper().convertValue(property, Property.class);
+    }
+
     private void appendModels(Type type) {
-        final Map<String, Model> models = ModelConverters.getInstance().readAll(type);
+        final Map<String, Model> models = modelCache.readAll(type);
         for (Map.Entry<String, Model> entry : models.entrySet()) {
             getSwagger().model(entry.getKey(), entry.getValue());
         }
@@ -749,10 +796,14 @@ public class PlayReader {
                     Class<?> cls = header.response();
 
                     if (!isVoid(cls)) {
-                        final Property property = ModelConverters.getInstance().readAsProperty(cls);
+                        final Property property = modelCache.readAsProperty(cls);
                         if (property != null) {
                             Property responseProperty = ContainerWrapper.wrapContainer(header.responseContainer(), property,
                                     ContainerWrapper.ARRAY, ContainerWrapper.LIST, ContainerWrapper.SET);
+                            if (responseProperty == property) {
+                                // the description is set on a copy of the shared cached property
+                                responseProperty = copy(property);
+                            }
                             responseProperty.setDescription(description);
                             responseHeaders.put(name, responseProperty);
                             appendModels(cls);
@@ -764,15 +815,6 @@ public class PlayReader {
         return responseHeaders;
     }
 
-    public String getFullMethodName(Class clazz, Method method) {
-
-        if (!clazz.getCanonicalName().contains("$")) {
-            return clazz.getCanonicalName() + "$." + method.getName();
-        } else {
-            return clazz.getCanonicalName() + "." + method.getName();
-        }
-    }
-
     public String extractOperationMethod(ApiOperation apiOperation,
                                          Method method, Route route) {
         String httpMethod = null;
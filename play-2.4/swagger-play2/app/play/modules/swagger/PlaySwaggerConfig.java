@@ -13,6 +13,21 @@ public class PlaySwaggerConfig {
     String filterClass;
     String host;
     String basePath;
+    boolean compress;
+    int readerParallelism;
+    long warmUpTimeout;
+    String specResource;
+    int filterCacheSize;
+    boolean incremental;
+    boolean pretty = true;
+    long cacheMaxAge;
+    int renderLimit;
+    int renderQueue;
+    long renderTimeout;
+    long renderHold = 60000;
+    boolean bytecodeScan;
+    boolean sharedModelCache;
+    int streamThreads = 8;
 
     public String[] getSchemes() {
         return schemes;
@@ -101,4 +116,124 @@ public class PlaySwaggerConfig {
     public void setBasePath(String basePath) {
         this.basePath = basePath;
     }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    public int getReaderParallelism() {
+        return readerParallelism;
+    }
+
+    public void setReaderParallelism(int readerParallelism) {
+        this.readerParallelism = readerParallelism;
+    }
+
+    public long getWarmUpTimeout() {
+        return warmUpTimeout;
+    }
+
+    public void setWarmUpTimeout(long warmUpTimeout) {
+        this.warmUpTimeout = warmUpTimeout;
+    }
+
+    public String getSpecResource() {
+        return specResource;
+    }
+
+    public void setSpecResource(String specResource) {
+        this.specResource = specResource;
+    }
+
+    public int getFilterCacheSize() {
+        return filterCacheSize;
+    }
+
+    public void setFilterCacheSize(int filterCacheSize) {
+        this.filterCacheSize = filterCacheSize;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isPretty() {
+        return pretty;
+    }
+
+    public void setPretty(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    public long getCacheMaxAge() {
+        return cacheMaxAge;
+    }
+
+    public void setCacheMaxAge(long cacheMaxAge) {
+        this.cacheMaxAge = cacheMaxAge;
+    }
+
+    public int getRenderLimit() {
+        return renderLimit;
+    }
+
+    public void setRenderLimit(int renderLimit) {
+        this.renderLimit = renderLimit;
+    }
+
+    public int getRenderQueue() {
+        return renderQueue;
+    }
+
+    public void setRenderQueue(int renderQueue) {
+        this.renderQueue = renderQueue;
+    }
+
+    public long getRenderTimeout() {
+        return renderTimeout;
+    }
+
+    public void setRenderTimeout(long renderTimeout) {
+        this.renderTimeout = renderTimeout;
+    }
+
+    public long getRenderHold() {
+        return renderHold;
+    }
+
+    public void setRenderHold(long renderHold) {
+        this.renderHold = renderHold;
+    }
+
+    public boolean isBytecodeScan() {
+        return bytecodeScan;
+    }
+
+    public void setBytecodeScan(boolean bytecodeScan) {
+        this.bytecodeScan = bytecodeScan;
+    }
+
+    public boolean isSharedModelCache() {
+        return sharedModelCache;
+    }
+
+    public void setSharedModelCache(boolean sharedModelCache) {
+        this.sharedModelCache = sharedModelCache;
+    }
+
+    public int getStreamThreads() {
+        return streamThreads;
+    }
+
+    public void setStreamThreads(int streamThreads) {
+        this.streamThreads = streamThreads;
+    }
 }
@@ -0,0 +1,110 @@
+package play.modules.swagger
+
+import java.util.concurrent.atomic.{AtomicBoolean, AtomicReference}
+import java.util.concurrent.{ScheduledFuture, TimeUnit}
+
+import play.api.mvc.Result
+
+import scala.concurrent.{ExecutionContext, Future, Promise}
+import scala.util.control.NonFatal
+
+/**
+  * Admission control for listing requests that can't be answered from a cache.
+  * Up to limit requests filter and render at the same time, each holding its slot until the body of its
+  * response is sent, or at most hold milliseconds when the body is never sent, e.g. the client went away first.
+  * Up to queue more wait at most timeout for a slot, without holding a thread; any further request is turned away
+  * right away.
+  */
+object RenderAdmission {
+
+  class Gate(val limit: Int, val queue: Int, val timeout: Long, val hold: Long = 60000L) {
+    // free slots and the requests waiting for one, oldest first; guarded by this
+    private var available = limit
+    private val waiting = new java.util.ArrayDeque[Promise[Boolean]]()
+
+    /**
+      * Completes with true once a slot is taken, or with false when the queue is full or the wait timed out
+      */
+    def enter(): Future[Boolean] = synchronized {
+      if (available > 0) {
+        available -= 1
+        Future.successful(true)
+      } else if (waiting.size >= queue) {
+        Future.successful(false)
+      } else {
+        val promise = Promise[Boolean]()
+        waiting.add(promise)
+        SwaggerDispatcher.timer.schedule(new Runnable {
+          override def run(): Unit = Gate.this.synchronized {
+            if (waiting.remove(promise)) promise.success(false)
+          }
+        }, timeout, TimeUnit.MILLISECONDS)
+        promise.future
+      }
+    }
+
+    /**
+      * Free a slot, handing it to the oldest waiting request if there is one
+      */
+    def exit(): Unit = synchronized {
+      Option(waiting.poll()) match {
+        case Some(promise) => promise.success(true)
+        case None => available += 1
+      }
+    }
+  }
+
+  // gate of the current configuration, replaced when the application is restarted with a new one
+  @volatile private var current: Option[(PlaySwaggerConfig, Gate)] = None
+
+  /**
+    * The gate to pass, none when the number of concurrent renders isn't limited
+    */
+  def gate: Option[Gate] = {
+    Option(PlayConfigFactory.getConfig).filter(_.getRenderLimit > 0).map { config =>
+      current match {
+        case Some((gateConfig, gate)) if gateConfig eq config => gate
+        case _ => synchronized {
+          current.filter(_._1 eq config).map(_._2).getOrElse {
+            val gate = new Gate(config.getRenderLimit, config.getRenderQueue, config.getRenderTimeout, config.getRenderHold)
+            current = Some((config, gate))
+            gate
+          }
+        }
+      }
+    }
+  }
+
+  /**
+    * Runs the given block when admitted, otherwise answers with the given fallback.
+    * The slot is held until the body of the result is sent, since streamed listings render while it's being sent,
+    * but no longer than the hold time of the gate, so a body that is never sent doesn't keep its slot.
+    */
+  def admit(block: => Result)(tooBusy: => Result)(implicit ec: ExecutionContext): Future[Result] = {
+    gate match {
+      case None => Future.successful(block)
+      case Some(gate) => gate.enter().map {
+        case true =>
+          val exited = new AtomicBoolean()
+          val release = new AtomicReference[ScheduledFuture[_]]()
+          def exit(): Unit = if (exited.compareAndSet(false, true)) {
+            Option(release.get).foreach(_.cancel(false))
+            gate.exit()
+          }
+          // whichever comes first frees the slot: the body was sent, or it was held too long
+          release.set(SwaggerDispatcher.timer.schedule(new Runnable {
+            override def run(): Unit = exit()
+          }, gate.hold, TimeUnit.MILLISECONDS))
+          try {
+            val result = block
+            result.copy(body = result.body.onDoneEnumerating(exit()))
+          } catch {
+            case NonFatal(ex) =>
+              exit()
+              throw ex
+          }
+        case false => tooBusy
+      }
+    }
+  }
+}
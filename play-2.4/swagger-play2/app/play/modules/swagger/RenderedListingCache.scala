@@ -0,0 +1,88 @@
+package play.modules.swagger
+
+import java.io.ByteArrayOutputStream
+import java.util.zip.{DeflaterOutputStream, GZIPOutputStream}
+
+import com.fasterxml.jackson.databind.ObjectWriter
+import io.swagger.models.Swagger
+import io.swagger.util.{Json, Yaml}
+import play.api.Logger
+
+import scala.collection.concurrent.TrieMap
+
+/**
+  * Keeps ready-to-send bytes of the unfiltered API listing, so repeated documentation requests
+  * are answered without serializing the Swagger model again.
+  * Entries are keyed by the content hash of the listing, host, format and content encoding,
+  * and are dropped by ApiListingCache whenever the cached listing is replaced.
+  */
+object RenderedListingCache {
+
+  val JSON = "json"
+  val COMPACT_JSON = "json-compact"
+  val YAML = "yaml"
+  val XML = "xml"
+
+  val IDENTITY = "identity"
+  val GZIP = "gzip"
+  val DEFLATE = "deflate"
+
+  // the host comes from the request, so don't let arbitrary Host headers grow the cache
+  private val MaxEntries = 64
+
+  private val entries = TrieMap.empty[(String, String, String, String), Array[Byte]]
+
+  def get(swagger: Swagger, contentHash: String, host: String, format: String, encoding: String): Array[Byte] = {
+    val key = (contentHash, host, format, encoding)
+    entries.get(key) match {
+      case Some(bytes) => bytes
+      case None =>
+        val bytes = encoding match {
+          case IDENTITY => render(swagger, format)
+          case _ => compress(get(swagger, contentHash, host, format, IDENTITY), encoding)
+        }
+        if (entries.size < MaxEntries) {
+          entries.putIfAbsent(key, bytes)
+        }
+        bytes
+    }
+  }
+
+  /**
+    * Bytes rendered already, without rendering on a miss
+    */
+  def cached(contentHash: String, host: String, format: String, encoding: String): Option[Array[Byte]] = {
+    entries.get((contentHash, host, format, encoding))
+  }
+
+  def clear(): Unit = entries.clear()
+
+  def render(swagger: Swagger, format: String): Array[Byte] = {
+    Logger("swagger").debug("Rendering API listing as %s".format(format))
+    format match {
+      case XML => ListingXml.render(swagger)
+      case _ => writer(format).writeValueAsBytes(swagger)
+    }
+  }
+
+  def writer(format: String): ObjectWriter = format match {
+    case YAML => Yaml.pretty()
+    case COMPACT_JSON => Json.mapper().writer()
+    case _ => Json.pretty()
+  }
+
+  def compress(bytes: Array[Byte], encoding: String): Array[Byte] = {
+    val out = new ByteArrayOutputStream(bytes.length / 4 + 64)
+    val zip = encoding match {
+      case GZIP => new GZIPOutputStream(out)
+      case DEFLATE => new DeflaterOutputStream(out)
+      case _ => throw new IllegalArgumentException("Unsupported content encoding " + encoding)
+    }
+    try {
+      zip.write(bytes)
+    } finally {
+      zip.close()
+    }
+    out.toByteArray
+  }
+}
@@ -0,0 +1,250 @@
+package play.modules.swagger;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import io.swagger.util.Json;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the parameter type names of routes files, e.g. {@code Option[Int]} or {@code Map[String, Seq[Long]]},
+ * into Jackson types.
+ * Scala options keep their type argument, Scala and Java collections become java.util lists, sets and maps
+ * and Scala value types become the Java boxed types.
+ * Resolved types are kept by type name and class loader until the application stops.
+ */
+public final class RouteTypes {
+
+    private static final Map<String, Class<?>> SIMPLE_TYPES = new HashMap<>();
+
+    private static final Set<String> OPTIONS = new HashSet<>(Arrays.asList("Option", "scala.Option"));
+
+    private static final Set<String> LISTS = new HashSet<>(Arrays.asList(
+            "Seq", "scala.Seq", "scala.collection.Seq", "scala.collection.immutable.Seq",
+            "List", "scala.List", "scala.collection.immutable.List",
+            "IndexedSeq", "scala.IndexedSeq", "Vector", "scala.Vector", "scala.collection.immutable.Vector",
+            "Iterable", "scala.Iterable", "java.util.List", "java.util.Collection"));
+
+    private static final Set<String> SETS = new HashSet<>(Arrays.asList(
+            "Set", "scala.collection.Set", "scala.collection.immutable.Set", "java.util.Set"));
+
+    private static final Set<String> MAPS = new HashSet<>(Arrays.asList(
+            "Map", "scala.collection.Map", "scala.collection.immutable.Map", "scala.Predef.Map", "java.util.Map"));
+
+    private static final Set<String> ARRAYS = new HashSet<>(Arrays.asList("Array", "scala.Array"));
+
+    static {
+        simpleType(Integer.class, "Int", "scala.Int", "Integer", "int");
+        simpleType(Long.class, "Long", "scala.Long", "long");
+        simpleType(Double.class, "Double", "scala.Double", "double");
+        simpleType(Float.class, "Float", "scala.Float", "float");
+        simpleType(Boolean.class, "Boolean", "scala.Boolean", "boolean");
+        simpleType(Short.class, "Short", "scala.Short", "short");
+        simpleType(Byte.class, "Byte", "scala.Byte", "byte");
+        simpleType(Character.class, "Char", "scala.Char", "Character", "char");
+        simpleType(String.class, "String", "Predef.String", "scala.Predef.String");
+        simpleType(java.math.BigDecimal.class, "BigDecimal", "scala.BigDecimal", "scala.math.BigDecimal");
+        simpleType(java.math.BigInteger.class, "BigInt", "scala.BigInt", "scala.math.BigInt");
+        simpleType(UUID.class, "UUID");
+    }
+
+    private static void simpleType(Class<?> cls, String... names) {
+        for (String name : names) {
+            SIMPLE_TYPES.put(name, cls);
+        }
+    }
+
+    private static final class Key {
+        final String typeName;
+        final ClassLoader classLoader;
+
+        Key(String typeName, ClassLoader classLoader) {
+            this.typeName = typeName;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return typeName.equals(key.typeName) && classLoader == key.classLoader;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * typeName.hashCode() + System.identityHashCode(classLoader);
+        }
+    }
+
+    // generic types are constructed from their reflection form, so type modifiers (e.g. of the Scala module) apply
+    private static final class Parameterized implements ParameterizedType {
+        private final Class<?> rawType;
+        private final Type[] arguments;
+
+        Parameterized(Class<?> rawType, List<JavaType> arguments) {
+            this.rawType = rawType;
+            this.arguments = arguments.toArray(new Type[arguments.size()]);
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return arguments.clone();
+        }
+
+        @Override
+        public Type getRawType() {
+            return rawType;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return null;
+        }
+    }
+
+    private static final ConcurrentMap<Key, Optional<JavaType>> TYPES = new ConcurrentHashMap<>();
+
+    private RouteTypes() {
+    }
+
+    /**
+     * The type with the given name, classes are loaded from the given class loader.
+     * Null when the name can't be parsed or refers to an unknown class.
+     */
+    public static JavaType resolve(String typeName, ClassLoader classLoader) {
+        if (typeName == null) {
+            return null;
+        }
+        return TYPES.computeIfAbsent(new Key(typeName, classLoader), key -> {
+            try {
+                return Optional.of(new Parser(typeName, classLoader).parse());
+            } catch (IllegalArgumentException | ClassNotFoundException e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    public static void clear() {
+        TYPES.clear();
+    }
+
+    /**
+     * Recursive descent parser of {@code name ('[' type (',' type)* ']')?}, Java style angle brackets are accepted too
+     */
+    private static final class Parser {
+        private final String input;
+        private final ClassLoader classLoader;
+        private int position;
+
+        Parser(String input, ClassLoader classLoader) {
+            this.input = input;
+            this.classLoader = classLoader;
+        }
+
+        JavaType parse() throws ClassNotFoundException {
+            JavaType type = type();
+            skipWhitespace();
+            if (position != input.length()) {
+                throw error();
+            }
+            return type;
+        }
+
+        private JavaType type() throws ClassNotFoundException {
+            String name = name();
+            List<JavaType> arguments = new ArrayList<>();
+            skipWhitespace();
+            if (position < input.length() && (input.charAt(position) == '[' || input.charAt(position) == '<')) {
+                char close = input.charAt(position) == '[' ? ']' : '>';
+                position++;
+                do {
+                    arguments.add(type());
+                    skipWhitespace();
+                } while (accept(','));
+                if (!accept(close)) {
+                    throw error();
+                }
+            }
+            return build(name, arguments);
+        }
+
+        private String name() {
+            skipWhitespace();
+            int start = position;
+            while (position < input.length()
+                    && (Character.isJavaIdentifierPart(input.charAt(position)) || input.charAt(position) == '.')) {
+                position++;
+            }
+            if (start == position) {
+                throw error();
+            }
+            String name = input.substring(start, position);
+            return name.startsWith("_root_.") ? name.substring("_root_.".length()) : name;
+        }
+
+        private boolean accept(char c) {
+            if (position < input.length() && input.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipWhitespace() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException("Invalid type '" + input + "' at position " + position);
+        }
+
+        private JavaType build(String name, List<JavaType> arguments) throws ClassNotFoundException {
+            TypeFactory factory = Json.mapper().getTypeFactory();
+            if (arguments.size() == 1 && OPTIONS.contains(name)) {
+                return factory.constructType(new Parameterized(scala.Option.class, arguments));
+            }
+            if (arguments.size() == 1 && LISTS.contains(name)) {
+                return factory.constructCollectionType(List.class, arguments.get(0));
+            }
+            if (arguments.size() == 1 && SETS.contains(name)) {
+                return factory.constructCollectionType(Set.class, arguments.get(0));
+            }
+            if (arguments.size() == 2 && MAPS.contains(name)) {
+                return factory.constructMapType(Map.class, arguments.get(0), arguments.get(1));
+            }
+            if (arguments.size() == 1 && ARRAYS.contains(name)) {
+                return factory.constructArrayType(arguments.get(0));
+            }
+            if (arguments.isEmpty() && SIMPLE_TYPES.containsKey(name)) {
+                return factory.constructType(SIMPLE_TYPES.get(name));
+            }
+            Class<?> cls = load(name);
+            if (arguments.isEmpty()) {
+                return factory.constructType(cls);
+            }
+            if (cls.getTypeParameters().length != arguments.size()) {
+                throw error();
+            }
+            return factory.constructType(new Parameterized(cls, arguments));
+        }
+
+        private Class<?> load(String name) throws ClassNotFoundException {
+            if (name.indexOf('.') < 0) {
+                try {
+                    return Class.forName("java.lang." + name, false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // not a java.lang class, e.g. a class of the default package
+                }
+            }
+            return Class.forName(name, false, classLoader);
+        }
+    }
+}
@@ -2,28 +2,73 @@ package play.modules.swagger;
 
 import play.routes.compiler.Route;
 
-import java.util.Map;
-
+import java.util.*;
 
+/**
+ * The application routes grouped by controller and action, in the order of the routes files.
+ * An action bound to several routes keeps all of them.
+ */
 public class RouteWrapper {
 
-    private Map<String, Route> router;
+    private final List<Route> routes;
+
+    // controller class name, as written in the routes file, to the routes of each of its actions
+    private final Map<String, Map<String, List<Route>>> controllers;
+
+    public RouteWrapper(List<Route> routes) {
+        Map<String, Map<String, List<Route>>> controllers = new LinkedHashMap<>();
+        for (Route route : routes) {
+            String controller = route.call().packageName() + "." + route.call().controller();
+            controllers.computeIfAbsent(controller, name -> new LinkedHashMap<>())
+                    .computeIfAbsent(route.call().method(), name -> new ArrayList<>())
+                    .add(route);
+        }
+        for (Map.Entry<String, Map<String, List<Route>>> controller : controllers.entrySet()) {
+            for (Map.Entry<String, List<Route>> action : controller.getValue().entrySet()) {
+                action.setValue(Collections.unmodifiableList(action.getValue()));
+            }
+            controller.setValue(Collections.unmodifiableMap(controller.getValue()));
+        }
+        this.routes = Collections.unmodifiableList(new ArrayList<>(routes));
+        this.controllers = Collections.unmodifiableMap(controllers);
+    }
 
-    public RouteWrapper(Map<String, Route> router) {
-        this.router = router;
+    /**
+     * Names of the routed controller classes
+     */
+    public Set<String> getControllers() {
+        return controllers.keySet();
     }
 
-    public Route get(String routeName) {
-        return router.get(routeName);
+    /**
+     * Routes of each action of the given controller class by method name, empty when it isn't routed
+     */
+    public Map<String, List<Route>> getActions(Class<?> controller) {
+        return getActions(controllerName(controller));
     }
 
-    public boolean exists(String routeName) {
-        return router.containsKey(routeName);
+    public Map<String, List<Route>> getActions(String controller) {
+        Map<String, List<Route>> actions = controllers.get(controller);
+        return actions == null ? Collections.<String, List<Route>>emptyMap() : actions;
     }
 
-    public Map<String, Route> getAll() {
-        return router;
+    /**
+     * Routes of the given action, empty when it isn't routed
+     */
+    public List<Route> get(Class<?> controller, String method) {
+        List<Route> routes = getActions(controller).get(method);
+        return routes == null ? Collections.<Route>emptyList() : routes;
     }
 
+    public List<Route> getAll() {
+        return routes;
+    }
 
+    /**
+     * The name of a controller class as written in the routes file, without the trailing $ of Scala objects
+     */
+    public static String controllerName(Class<?> controller) {
+        String name = controller.getCanonicalName() != null ? controller.getCanonicalName() : controller.getName();
+        return name.endsWith("$") ? name.substring(0, name.length() - 1) : name;
+    }
 }
@@ -0,0 +1,98 @@
+package play.modules.swagger
+
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.{Executors, LinkedBlockingQueue, ScheduledExecutorService, ThreadFactory, ThreadPoolExecutor, TimeUnit}
+
+import play.api.libs.concurrent.Execution
+import play.api.libs.iteratee.{Execution => IterateeExecution}
+
+import scala.concurrent.duration.Duration
+import scala.concurrent.{ExecutionContext, ExecutionContextExecutorService, Future, Promise}
+import scala.util.Try
+
+/**
+  * Execution context the docs actions run on, looked up from the swagger.dispatcher configuration
+  * when the plugin starts, so building, filtering and rendering listings doesn't hold up the threads
+  * serving the rest of the application.
+  */
+object SwaggerDispatcher {
+
+  val Name = "swagger.dispatcher"
+
+  @volatile private var context: Option[ExecutionContext] = None
+
+  def set(executionContext: ExecutionContext): Unit = context = Some(executionContext)
+
+  def reset(): Unit = {
+    context = None
+    synchronized {
+      blocking.foreach(_.shutdown())
+      blocking = None
+    }
+  }
+
+  /**
+   * The configured dispatcher, Play's default one when the plugin isn't started
+   */
+  def executionContext: ExecutionContext = context.getOrElse(Execution.defaultContext)
+
+  /**
+   * Completes waits that run out of time, so waiting for something never holds a thread
+   */
+  lazy val timer: ScheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory {
+    override def newThread(runnable: Runnable): Thread = {
+      val thread = new Thread(runnable, "swagger-timer")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+
+  /**
+   * The given future, or the fallback when it doesn't complete within the timeout
+   */
+  def within[T](future: Future[T], timeout: Duration)(fallback: => T): Future[T] = {
+    if (future.isCompleted || !timeout.isFinite) {
+      future
+    } else {
+      val promise = Promise[T]()
+      val task = timer.schedule(new Runnable {
+        override def run(): Unit = promise.tryComplete(Try(fallback))
+      }, math.max(timeout.toMillis, 0L), TimeUnit.MILLISECONDS)
+      future.onComplete { result =>
+        task.cancel(false)
+        promise.tryComplete(result)
+      }(IterateeExecution.trampoline)
+      promise.future
+    }
+  }
+
+  private val blockingThreads = new ThreadFactory {
+    private val count = new AtomicInteger()
+
+    override def newThread(runnable: Runnable): Thread = {
+      val thread = new Thread(runnable, "swagger-blocking-" + count.incrementAndGet())
+      thread.setDaemon(true)
+      thread
+    }
+  }
+
+  @volatile private var blocking: Option[ExecutionContextExecutorService] = None
+
+  /**
+   * Execution context for work that blocks, i.e. writers waiting for slow clients and reading routes files.
+   * Its pool has swagger.api.stream.threads threads, dropped when idle; further work waits for a free one,
+   * so blocking never takes a thread from the dispatcher and never grows without bound.
+   */
+  def blockingContext: ExecutionContext = blocking.getOrElse {
+    synchronized {
+      blocking.getOrElse {
+        val threads = Option(PlayConfigFactory.getConfig).map(_.getStreamThreads).filter(_ > 0).getOrElse(8)
+        val executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue[Runnable](), blockingThreads)
+        executor.allowCoreThreadTimeOut(true)
+        val context = ExecutionContext.fromExecutorService(executor)
+        blocking = Some(context)
+        context
+      }
+    }
+  }
+}
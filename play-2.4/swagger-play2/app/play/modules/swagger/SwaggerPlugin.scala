@@ -16,19 +16,27 @@
 
 package play.modules.swagger
 
-import java.io.File
+import java.io.{ByteArrayOutputStream, File}
+import java.net.URL
+import java.nio.ByteBuffer
+import java.nio.channels.Channels
+import java.nio.charset.StandardCharsets
+import java.nio.file.{Files, Paths}
+import java.util.concurrent.TimeUnit
 import javax.inject.Inject
 import io.swagger.config.{FilterFactory, ScannerFactory}
 import play.modules.swagger.util.SwaggerContext
 import io.swagger.core.filter.SwaggerSpecFilter
 import play.api.inject.ApplicationLifecycle
-import play.api.{Logger, Application}
+import play.api.libs.concurrent.Akka
+import play.api.{Configuration, Logger, Application}
 import play.api.routing.Router
-import scala.concurrent.Future
+import scala.concurrent.{Await, Future}
+import scala.concurrent.duration.Duration
 import scala.collection.JavaConversions._
-import play.routes.compiler.{Route => PlayRoute, Include => PlayInclude, RoutesFileParser, StaticPart}
-
-import scala.io.Source
+import scala.collection.concurrent.TrieMap
+import org.apache.commons.codec.digest.DigestUtils
+import play.routes.compiler.{Route => PlayRoute, Include => PlayInclude, Rule, RoutesFileParser, StaticPart}
 
 trait SwaggerPlugin
 
@@ -39,113 +47,46 @@ class SwaggerPluginImpl @Inject()(lifecycle: ApplicationLifecycle, router: Route
   val config = app.configuration
   logger.info("Swagger - starting initialisation...")
 
-  val apiVersion = config.getString("api.version") match {
-    case None => "beta"
-    case Some(value) => value
-  }
+  var swaggerConfig = SwaggerPluginImpl.readConfig(config)
 
-  val basePath = config.getString("swagger.api.basepath")
-    .filter(path => !path.isEmpty)
-    .getOrElse("/")
+  val apiVersion = swaggerConfig.version
 
-  val host = config.getString("swagger.api.host")
-    .filter(host => !host.isEmpty)
-    .getOrElse("localhost:9000")
+  val basePath = swaggerConfig.basePath
 
-  val title = config.getString("swagger.api.info.title") match {
-    case None => ""
-    case Some(value)=> value
-  }
+  val host = swaggerConfig.host
 
-  val description = config.getString("swagger.api.info.description") match {
-    case None => ""
-    case Some(value)=> value
-  }
+  val title = swaggerConfig.title
 
-  val termsOfServiceUrl = config.getString("swagger.api.info.termsOfServiceUrl") match {
-    case None => ""
-    case Some(value)=> value
-  }
+  val description = swaggerConfig.description
 
-  val contact = config.getString("swagger.api.info.contact") match {
-    case None => ""
-    case Some(value)=> value
-  }
+  val termsOfServiceUrl = swaggerConfig.termsOfServiceUrl
 
-  val license = config.getString("swagger.api.info.license") match {
-    case None => ""
-    case Some(value)=> value
-  }
+  val contact = swaggerConfig.contact
 
-  val licenseUrl = config.getString("swagger.api.info.licenseUrl") match {
-    // licenceUrl needs to be a valid URL to validate against schema
-    case None => "http://licenseUrl"
-    case Some(value)=> value
-  }
+  val license = swaggerConfig.license
+
+  val licenseUrl = swaggerConfig.licenseUrl
+
+  val warmUpInBackground = config.getBoolean("swagger.warmup.background").getOrElse(false)
 
   SwaggerContext.registerClassLoader(app.classloader)
 
   var scanner = new PlayApiScanner()
   ScannerFactory.setScanner(scanner)
 
-  var swaggerConfig = new PlaySwaggerConfig()
-
-  swaggerConfig.description = description
-  swaggerConfig.basePath = basePath
-  swaggerConfig.contact = contact
-  swaggerConfig.version = apiVersion
-  swaggerConfig.title = title
-  swaggerConfig.host = host
-  swaggerConfig.termsOfServiceUrl = termsOfServiceUrl
-  swaggerConfig.license = license
-  swaggerConfig.licenseUrl = licenseUrl
-
   PlayConfigFactory.setConfig(swaggerConfig)
 
-
-  val routes = parseRoutes
-
-  def parseRoutes: List[PlayRoute] = {
-    def playRoutesClassNameToFileName(className: String) = className.replace(".Routes", ".routes")
-
-    val routesFile = config.underlying.hasPath("play.http.router") match {
-      case false => "routes"
-      case true => config.getString("play.http.router") match {
-        case None => "routes"
-        case Some(value)=> playRoutesClassNameToFileName(value)
-      }
-    }
-    //Parses multiple route files recursively
-    def parseRoutesHelper(routesFile: String, prefix: String): List[PlayRoute] = {
-      logger.debug(s"Processing route file '$routesFile' with prefix '$prefix'")
-
-      val routesContent =  Source.fromInputStream(app.classloader.getResourceAsStream(routesFile)).mkString
-      val parsedRoutes = RoutesFileParser.parseContent(routesContent,new File(routesFile))
-      val routes = parsedRoutes.right.get.collect {
-        case (route: PlayRoute) => {
-          logger.debug(s"Adding route '$route'")
-          Seq(route.copy(path = route.path.copy(parts = StaticPart(prefix + "/") +: route.path.parts)))
-        }
-        case (include: PlayInclude) => {
-          logger.debug(s"Processing route include $include")
-          parseRoutesHelper(playRoutesClassNameToFileName(include.router), include.prefix)
-        }
-      }.flatten
-      logger.debug(s"Finished processing route file '$routesFile'")
-      routes
-    }
-    parseRoutesHelper(routesFile, "")
+  // a spec generated at build time makes routes parsing and controller scanning unnecessary
+  val prebuilt = Option(swaggerConfig.specResource).exists(app.classloader.getResource(_) != null)
+  if (prebuilt) {
+    logger.info("Swagger - using pre-built spec %s".format(swaggerConfig.specResource))
   }
 
-  val routesRules = Map(routes map
-    { route =>
-    {
-      val routeName = s"${route.call.packageName}.${route.call.controller}$$.${route.call.method}"
-      (routeName -> route)
-    }
-    } : _*)
+  val routes = if (prebuilt) Nil else parseRoutes
+
+  def parseRoutes: List[PlayRoute] = SwaggerPluginImpl.parseRoutes(config, app.classloader)
 
-  val route = new RouteWrapper(routesRules)
+  val route = new RouteWrapper(routes)
   RouteFactory.setRoute(route)
   app.configuration.getString("swagger.filter") match {
     case Some(e) if (e != "") => {
@@ -160,17 +101,187 @@ class SwaggerPluginImpl @Inject()(lifecycle: ApplicationLifecycle, router: Route
     case _ =>
   }
 
+  if (config.underlying.hasPath(SwaggerDispatcher.Name)) {
+    SwaggerDispatcher.set(Akka.system(app).dispatchers.lookup(SwaggerDispatcher.Name))
+  }
+
   val docRoot = ""
-  ApiListingCache.listing(docRoot, "127.0.0.1")
+  if (warmUpInBackground) {
+    ApiListingCache.warmUp(docRoot)(SwaggerDispatcher.executionContext)
+  } else {
+    ApiListingCache.listing(docRoot, "127.0.0.1")
+  }
 
   logger.info("Swagger - initialization done.")
 
   // previous contents of Plugin.onStart
   lifecycle.addStopHook { () =>
-    ApiListingCache.cache = None
+    ApiListingCache.reset()
+    SwaggerDispatcher.reset()
+    ModelCache.getShared.clear()
+    RouteTypes.clear()
+    SwaggerContext.unregisterClassLoader(app.classloader)
     logger.info("Swagger - stopped.")
 
     Future.successful(())
   }
 
 }
+
+object SwaggerPluginImpl {
+
+  private val logger = Logger("swagger")
+
+  def readConfig(config: Configuration): PlaySwaggerConfig = {
+    val apiVersion = config.getString("api.version") match {
+      case None => "beta"
+      case Some(value) => value
+    }
+
+    val basePath = config.getString("swagger.api.basepath")
+      .filter(path => !path.isEmpty)
+      .getOrElse("/")
+
+    val host = config.getString("swagger.api.host")
+      .filter(host => !host.isEmpty)
+      .getOrElse("localhost:9000")
+
+    val title = config.getString("swagger.api.info.title") match {
+      case None => ""
+      case Some(value)=> value
+    }
+
+    val description = config.getString("swagger.api.info.description") match {
+      case None => ""
+      case Some(value)=> value
+    }
+
+    val termsOfServiceUrl = config.getString("swagger.api.info.termsOfServiceUrl") match {
+      case None => ""
+      case Some(value)=> value
+    }
+
+    val contact = config.getString("swagger.api.info.contact") match {
+      case None => ""
+      case Some(value)=> value
+    }
+
+    val license = config.getString("swagger.api.info.license") match {
+      case None => ""
+      case Some(value)=> value
+    }
+
+    val licenseUrl = config.getString("swagger.api.info.licenseUrl") match {
+      // licenceUrl needs to be a valid URL to validate against schema
+      case None => "http://licenseUrl"
+      case Some(value)=> value
+    }
+
+    val swaggerConfig = new PlaySwaggerConfig()
+
+    swaggerConfig.description = description
+    swaggerConfig.basePath = basePath
+    swaggerConfig.contact = contact
+    swaggerConfig.version = apiVersion
+    swaggerConfig.title = title
+    swaggerConfig.host = host
+    swaggerConfig.termsOfServiceUrl = termsOfServiceUrl
+    swaggerConfig.license = license
+    swaggerConfig.licenseUrl = licenseUrl
+    swaggerConfig.compress = config.getBoolean("swagger.api.compress").getOrElse(false)
+    swaggerConfig.readerParallelism = config.getInt("swagger.reader.parallelism").getOrElse(0)
+    swaggerConfig.warmUpTimeout = config.getMilliseconds("swagger.warmup.timeout").getOrElse(0L)
+    swaggerConfig.specResource = config.getString("swagger.spec.resource").filter(!_.isEmpty).orNull
+    swaggerConfig.filterCacheSize = config.getInt("swagger.filter.cache.size").getOrElse(32)
+    swaggerConfig.incremental = config.getBoolean("swagger.reader.incremental").getOrElse(false)
+    swaggerConfig.pretty = config.getBoolean("swagger.api.pretty").getOrElse(true)
+    swaggerConfig.cacheMaxAge = config.getMilliseconds("swagger.api.cache.maxage").map(_ / 1000).getOrElse(0L)
+    swaggerConfig.renderLimit = config.getInt("swagger.api.render.limit").getOrElse(0)
+    swaggerConfig.renderQueue = config.getInt("swagger.api.render.queue").getOrElse(16)
+    swaggerConfig.renderTimeout = config.getMilliseconds("swagger.api.render.timeout").getOrElse(1000L)
+    swaggerConfig.renderHold = config.getMilliseconds("swagger.api.render.hold").getOrElse(60000L)
+    swaggerConfig.streamThreads = config.getInt("swagger.api.stream.threads").getOrElse(8)
+    swaggerConfig.bytecodeScan = config.getBoolean("swagger.scanner.bytecode").getOrElse(false)
+    swaggerConfig.sharedModelCache = config.getBoolean("swagger.reader.models.shared").getOrElse(false)
+    swaggerConfig
+  }
+
+  // parsed routes files by resource URL, reused as long as the content hash is unchanged (e.g. across dev mode reloads)
+  private val parsedRoutesFiles = TrieMap.empty[String, (String, List[Rule])]
+
+  def parseRoutes(config: Configuration, classLoader: ClassLoader): List[PlayRoute] = {
+    def playRoutesClassNameToFileName(className: String) = className.replace(".Routes", ".routes")
+
+    val routesFile = config.underlying.hasPath("play.http.router") match {
+      case false => "routes"
+      case true => config.getString("play.http.router") match {
+        case None => "routes"
+        case Some(value)=> playRoutesClassNameToFileName(value)
+      }
+    }
+    // routes files are read on the module's own pool, the plugin gives up on them after swagger.routes.timeout
+    implicit val ec = SwaggerDispatcher.blockingContext
+    val timeout = config.getMilliseconds("swagger.routes.timeout").getOrElse(30000L)
+
+    //Parses multiple route files recursively, included files are parsed in parallel
+    def parseRoutesHelper(routesFile: String, prefix: String): Future[List[PlayRoute]] = {
+      Future(parseRoutesFile(classLoader, routesFile)).flatMap { rules =>
+        val routes = rules.map {
+          case (route: PlayRoute) => {
+            logger.debug(s"Adding route '$route'")
+            Future.successful(List(route.copy(path = route.path.copy(parts = StaticPart(prefix + "/") +: route.path.parts))))
+          }
+          case (include: PlayInclude) => {
+            logger.debug(s"Processing route include $include")
+            parseRoutesHelper(playRoutesClassNameToFileName(include.router), include.prefix)
+          }
+        }
+        Future.sequence(routes).map(_.flatten)
+      }
+    }
+    Await.result(parseRoutesHelper(routesFile, ""), Duration(timeout, TimeUnit.MILLISECONDS))
+  }
+
+  private def parseRoutesFile(classLoader: ClassLoader, routesFile: String): List[Rule] = {
+    logger.debug(s"Processing route file '$routesFile'")
+    Option(classLoader.getResource(routesFile)) match {
+      case None =>
+        logger.error(s"Route file '$routesFile' not found")
+        Nil
+      case Some(url) =>
+        val content = readRoutesFile(url)
+        val hash = DigestUtils.sha1Hex(content)
+        val rules = parsedRoutesFiles.get(url.toString) match {
+          case Some((parsedHash, parsedRules)) if parsedHash == hash =>
+            logger.debug(s"Route file '$routesFile' unchanged, reusing parsed routes")
+            parsedRules
+          case _ =>
+            val parsedRules = RoutesFileParser.parseContent(new String(content, StandardCharsets.UTF_8), new File(routesFile)).right.get
+            parsedRoutesFiles.put(url.toString, (hash, parsedRules))
+            parsedRules
+        }
+        logger.debug(s"Finished processing route file '$routesFile'")
+        rules
+    }
+  }
+
+  private def readRoutesFile(url: URL): Array[Byte] = {
+    if (url.getProtocol == "file") {
+      Files.readAllBytes(Paths.get(url.toURI))
+    } else {
+      val channel = Channels.newChannel(url.openStream())
+      try {
+        val out = new ByteArrayOutputStream()
+        val buffer = ByteBuffer.allocate(8192)
+        while (channel.read(buffer) >= 0) {
+          buffer.flip()
+          out.write(buffer.array(), 0, buffer.limit())
+          buffer.clear()
+        }
+        out.toByteArray
+      } finally {
+        channel.close()
+      }
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package play.modules.swagger
+
+import java.io.File
+
+import com.typesafe.config.ConfigFactory
+import io.swagger.config.ScannerFactory
+import io.swagger.util.Json
+import play.api.{Configuration, Logger}
+import play.modules.swagger.util.SwaggerContext
+
+import scala.collection.JavaConversions._
+
+/**
+  * Writes the API listing of an application at build time, with the same routes parsing and reader
+  * used at runtime. Run it from the application build with the compiled classes and the conf directory
+  * on the classpath, and point swagger.spec.resource to the generated file to skip scanning at startup.
+  */
+object SwaggerSpecGenerator {
+
+  def main(args: Array[String]): Unit = {
+    if (args.length != 1) {
+      System.err.println("Usage: SwaggerSpecGenerator <output file>")
+      sys.exit(1)
+    }
+    val classLoader = getClass.getClassLoader
+    val config = Configuration(ConfigFactory.load(classLoader))
+    generate(config, classLoader, new File(args(0)))
+  }
+
+  def generate(config: Configuration, classLoader: ClassLoader, output: File): File = {
+    Logger("swagger").info("Swagger - generating %s".format(output))
+
+    SwaggerContext.registerClassLoader(classLoader)
+    PlayConfigFactory.setConfig(SwaggerPluginImpl.readConfig(config))
+    ScannerFactory.setScanner(new PlayApiScanner())
+    RouteFactory.setRoute(new RouteWrapper(SwaggerPluginImpl.parseRoutes(config, classLoader)))
+
+    val swagger = ApiListingCache.build()
+    Option(output.getParentFile).foreach(_.mkdirs())
+    Json.pretty().writeValue(output, swagger)
+    output
+  }
+}
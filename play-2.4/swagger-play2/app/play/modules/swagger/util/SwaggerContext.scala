@@ -1,8 +1,9 @@
 package play.modules.swagger.util
 
-import collection.mutable.ListBuffer
 import org.slf4j.{LoggerFactory, Logger}
 
+import scala.collection.concurrent.TrieMap
+
 /**
   * @author ayush
   * @since 10/9/11 5:36 PM
@@ -13,27 +14,56 @@ object SwaggerContext {
 
   var suffixResponseFormat = true
 
-  private val classLoaders = ListBuffer.empty[ClassLoader]
-  registerClassLoader(this.getClass.getClassLoader)
+  // most recently registered first; replaced as a whole, so lookups never see a partial update
+  @volatile private var classLoaders: List[ClassLoader] = List(this.getClass.getClassLoader)
+
+  // classes found by name and initialization, None for classes found in none of the loaders;
+  // cleared whenever the registered loaders change
+  private val classes = TrieMap.empty[(String, Boolean), Option[Class[_]]]
 
-  def registerClassLoader(cl: ClassLoader) = this.classLoaders += cl
+  def registerClassLoader(cl: ClassLoader): Unit = synchronized {
+    classLoaders = cl :: classLoaders.filterNot(_ eq cl)
+    classes.clear()
+  }
+
+  /**
+    * Forgets a loader that is no longer used, e.g. the class loader of an application stopped on a dev mode reload
+    */
+  def unregisterClassLoader(cl: ClassLoader): Unit = synchronized {
+    classLoaders = classLoaders.filterNot(_ eq cl)
+    classes.clear()
+  }
 
-  def loadClass(name: String) = {
-    var clazz: Class[_] = null
+  def loadClass(name: String): Class[_] = loadClass(name, true)
 
-    for (classLoader <- classLoaders.reverse) {
-      if(clazz == null) {
-        try {
-          clazz = Class.forName(name, true, classLoader)
-        } catch {
-          case e: ClassNotFoundException => LOGGER.debug("Class not found in classLoader " + classLoader)
+  def loadClass(name: String, initialize: Boolean): Class[_] = {
+    val clazz = classes.get((name, initialize)) match {
+      case Some(found) => found
+      case None =>
+        val loaders = classLoaders
+        val found = loaders.view.flatMap(classLoader => findClass(name, initialize, classLoader)).headOption
+        if (found.isEmpty) {
+          LOGGER.debug("Class " + name + " not found in class loaders " + loaders.mkString(", "))
         }
-      }
+        // don't cache a lookup done with loaders replaced in the meantime
+        synchronized {
+          if (classLoaders eq loaders) classes.put((name, initialize), found)
+        }
+        found
     }
 
-    if(clazz == null)
-      throw new ClassNotFoundException("class " + name + " not found")
+    clazz.getOrElse(throw new ClassNotFoundException("class " + name + " not found"))
+  }
+
+  private def findClass(name: String, initialize: Boolean, classLoader: ClassLoader): Option[Class[_]] = {
+    try {
+      Some(Class.forName(name, initialize, classLoader))
+    } catch {
+      case e: ClassNotFoundException => None
+    }
+  }
 
-    clazz
+  def getResourceAsStream(name: String): java.io.InputStream = {
+    classLoaders.view.map(_.getResourceAsStream(name)).find(_ != null).orNull
   }
 }
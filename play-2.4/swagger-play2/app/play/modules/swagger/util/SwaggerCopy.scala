@@ -0,0 +1,43 @@
+package play.modules.swagger.util
+
+import io.swagger.models.Swagger
+
+/**
+  * Builds cheap views over a cached Swagger model.
+  * The copies share paths, definitions and the other nested objects with the original,
+  * so neither the original nor the copy must be mutated below the top level.
+  */
+object SwaggerCopy {
+
+  def shallow(swagger: Swagger): Swagger = {
+    val copy = new Swagger()
+    copy.setSwagger(swagger.getSwagger)
+    copy.setInfo(swagger.getInfo)
+    copy.setHost(swagger.getHost)
+    copy.setBasePath(swagger.getBasePath)
+    copy.setTags(swagger.getTags)
+    copy.setSchemes(swagger.getSchemes)
+    copy.setConsumes(swagger.getConsumes)
+    copy.setProduces(swagger.getProduces)
+    copy.setSecurity(swagger.getSecurity)
+    copy.setPaths(swagger.getPaths)
+    copy.setSecurityDefinitions(swagger.getSecurityDefinitions)
+    copy.setDefinitions(swagger.getDefinitions)
+    copy.setParameters(swagger.getParameters)
+    copy.setResponses(swagger.getResponses)
+    copy.setExternalDocs(swagger.getExternalDocs)
+    copy.vendorExtensions(swagger.getVendorExtensions)
+  }
+
+  def withHost(swagger: Swagger, host: String): Swagger = {
+    val copy = shallow(swagger)
+    copy.setHost(host)
+    copy
+  }
+
+  def withPaths(swagger: Swagger, paths: java.util.Map[String, io.swagger.models.Path]): Swagger = {
+    val copy = shallow(swagger)
+    copy.setPaths(paths)
+    copy
+  }
+}
@@ -0,0 +1,58 @@
+package play.modules.swagger
+
+import java.util.concurrent.TimeUnit
+
+import controllers.ApiHelpController
+import io.swagger.core.filter.{AbstractSpecFilter, SpecFilter}
+import io.swagger.model.ApiDescription
+import io.swagger.models.{Model, Operation, Swagger}
+import io.swagger.models.properties.Property
+import org.openjdk.jmh.annotations._
+
+/**
+  * Filtering and rendering of listings read from the synthetic controllers
+  */
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+class ListingBenchmark {
+
+  @Param(Array("10", "100", "1000"))
+  var size: Int = _
+
+  var swagger: Swagger = _
+
+  val controller = new ApiHelpController
+
+  // hides the write operations and a model property, as an authorization filter would
+  val filter = new AbstractSpecFilter {
+    override def isOperationAllowed(operation: Operation, api: ApiDescription,
+                                    params: java.util.Map[String, java.util.List[String]],
+                                    cookies: java.util.Map[String, String],
+                                    headers: java.util.Map[String, java.util.List[String]]): Boolean =
+      !"post".equalsIgnoreCase(api.getMethod)
+
+    override def isPropertyAllowed(model: Model, property: Property, propertyName: String,
+                                   params: java.util.Map[String, java.util.List[String]],
+                                   cookies: java.util.Map[String, String],
+                                   headers: java.util.Map[String, java.util.List[String]]): Boolean =
+      propertyName != "created"
+  }
+
+  val noParams = new java.util.HashMap[String, java.util.List[String]]()
+  val noCookies = new java.util.HashMap[String, String]()
+
+  @Setup
+  def setup(): Unit = {
+    swagger = SyntheticApi.swagger(size)
+  }
+
+  @Benchmark
+  def specFilter(): Swagger = new SpecFilter().filter(swagger, filter, noParams, noCookies, noParams)
+
+  @Benchmark
+  def toJsonString(): String = controller.toJsonString(swagger)
+}
@@ -0,0 +1,44 @@
+package play.modules.swagger
+
+import java.util.concurrent.TimeUnit
+
+import io.swagger.models.Swagger
+import org.openjdk.jmh.annotations._
+import org.openjdk.jmh.infra.Blackhole
+import play.routes.compiler.PathPattern
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Array(Mode.Throughput))
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+class PlayReaderBenchmark {
+
+  @Param(Array("10", "100", "1000"))
+  var size: Int = _
+
+  var classes: java.util.Set[Class[_]] = _
+
+  var paths: Array[PathPattern] = _
+
+  @Setup
+  def setup(): Unit = {
+    SyntheticApi.configure(size)
+    classes = SyntheticApi.classes(size)
+    paths = SyntheticApi.routes(size).map(_.path).toArray
+  }
+
+  @Benchmark
+  def read(): Swagger = new PlayReader(null).read(classes)
+
+  @Benchmark
+  def pathFromRoute(blackhole: Blackhole): Unit = {
+    val reader = new PlayReader(null)
+    var i = 0
+    while (i < paths.length) {
+      blackhole.consume(reader.getPathFromRoute(paths(i), SyntheticApi.BasePath))
+      i += 1
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package play.modules.swagger
+
+import java.io.File
+
+import io.swagger.config.ScannerFactory
+import io.swagger.models.Swagger
+import play.routes.compiler.{Route => PlayRoute, RoutesFileParser}
+
+import scala.collection.JavaConversions._
+
+/**
+  * Sets up the global swagger state for the first size generated controllers
+  * (see project/SyntheticControllers.scala), the same way SwaggerPlugin does for an application.
+  */
+object SyntheticApi {
+
+  val BasePath = "/api"
+
+  def routes(size: Int): List[PlayRoute] = {
+    val content = (0 until size).map { i =>
+      s"""GET /api/resource$i benchmarks.synthetic.Controller$i.list(limit: Integer, name: String)
+         |GET /api/resource$i/:id benchmarks.synthetic.Controller$i.get(id: String)
+         |POST /api/resource$i benchmarks.synthetic.Controller$i.add""".stripMargin
+    }.mkString("\n")
+    RoutesFileParser.parseContent(content, new File("routes")).right.get.collect {
+      case route: PlayRoute => route
+    }
+  }
+
+  def classes(size: Int): java.util.Set[Class[_]] = {
+    val classes = new java.util.LinkedHashSet[Class[_]]()
+    (0 until size).foreach(i => classes.add(Class.forName(s"benchmarks.synthetic.Controller$i")))
+    classes
+  }
+
+  def configure(size: Int): Unit = {
+    val config = new PlaySwaggerConfig()
+    config setBasePath BasePath
+    config setHost "localhost:9000"
+    config setVersion "beta"
+    config setTitle "benchmark"
+    config setLicenseUrl "http://licenseUrl"
+    PlayConfigFactory.setConfig(config)
+    ScannerFactory.setScanner(new PlayApiScanner())
+    RouteFactory.setRoute(new RouteWrapper(routes(size)))
+  }
+
+  def swagger(size: Int): Swagger = {
+    configure(size)
+    new PlayReader(null).read(classes(size))
+  }
+}
@@ -0,0 +1,76 @@
+import java.io.{File, PrintWriter}
+
+/**
+  * Generates the annotated controllers and models the benchmarks read, so large API sets
+  * don't have to be written by hand.
+  * Each controller has a list, a get and an add action on its own resource and a model referencing a shared one.
+  */
+object SyntheticControllers {
+
+  val Package = "benchmarks.synthetic"
+
+  def generate(dir: File, count: Int): Seq[File] = {
+    val packageDir = new File(dir, Package.replace('.', '/'))
+    packageDir.mkdirs()
+    val shared = write(packageDir, "Owner", model("Owner", None))
+    shared +: (0 until count).flatMap { i =>
+      Seq(
+        write(packageDir, s"Model$i", model(s"Model$i", Some("Owner"))),
+        write(packageDir, s"Controller$i", controller(i)))
+    }
+  }
+
+  private def write(dir: File, name: String, source: String): File = {
+    val file = new File(dir, name + ".java")
+    val writer = new PrintWriter(file, "UTF-8")
+    try writer.write(source) finally writer.close()
+    file
+  }
+
+  private def model(name: String, reference: Option[String]): String =
+    s"""package $Package;
+       |
+       |import io.swagger.annotations.ApiModelProperty;
+       |
+       |import java.util.List;
+       |
+       |public class $name {
+       |  @ApiModelProperty(required = true)
+       |  public String id;
+       |  @ApiModelProperty(value = "Display name")
+       |  public String name;
+       |  public long created;
+       |  public List<String> tags;
+       |${reference.map(r => s"  public $r owner;\n  public List<$r> previousOwners;\n").getOrElse("")}}
+       |""".stripMargin
+
+  private def controller(i: Int): String =
+    s"""package $Package;
+       |
+       |import io.swagger.annotations.*;
+       |import play.mvc.Controller;
+       |import play.mvc.Result;
+       |
+       |@Api(value = "/resource$i", description = "Synthetic resource $i")
+       |public class Controller$i extends Controller {
+       |
+       |  @ApiOperation(value = "List", httpMethod = "GET", response = Model$i.class, responseContainer = "List")
+       |  @ApiResponses({@ApiResponse(code = 400, message = "Invalid query")})
+       |  public static Result list(@ApiParam(value = "Maximum number of results") Integer limit, @ApiParam(value = "Name filter") String name) {
+       |    return ok();
+       |  }
+       |
+       |  @ApiOperation(value = "Get", httpMethod = "GET", response = Model$i.class)
+       |  @ApiResponses({@ApiResponse(code = 404, message = "Not found")})
+       |  public static Result get(@ApiParam(value = "Id", required = true) String id) {
+       |    return ok();
+       |  }
+       |
+       |  @ApiOperation(value = "Add", httpMethod = "POST")
+       |  @ApiImplicitParams({@ApiImplicitParam(name = "body", required = true, dataType = "$Package.Model$i", paramType = "body")})
+       |  public static Result add() {
+       |    return ok();
+       |  }
+       |}
+       |""".stripMargin
+}
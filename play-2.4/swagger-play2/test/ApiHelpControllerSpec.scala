@@ -0,0 +1,202 @@
+import java.io.File
+import java.util.concurrent.{CountDownLatch, TimeUnit}
+import java.util.concurrent.atomic.AtomicBoolean
+
+import controllers.ApiHelpController
+import io.swagger.config.ScannerFactory
+import org.specs2.mutable._
+import play.api.libs.iteratee.Iteratee
+import play.api.test.FakeRequest
+import play.api.test.Helpers._
+import play.modules.swagger._
+import play.routes.compiler.{ Route => PlayRoute }
+
+import scala.collection.JavaConverters._
+import scala.concurrent.Await
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+
+class ApiHelpControllerSpec extends Specification {
+
+  // examples share the cached listing and the configuration
+  sequential
+
+  val routesContent = """
+GET /api/dog testdata.DogController.list
+PUT /api/dog testdata.DogController.add1
+GET /api/cat @testdata.CatController.list
+PUT /api/cat @testdata.CatController.add1
+    """
+
+  val routesList = {
+    play.routes.compiler.RoutesFileParser.parseContent(routesContent, new File("")).right.get.collect {
+      case (route: PlayRoute) => route
+    }
+  }
+
+  def configure(setup: PlaySwaggerConfig => Unit = _ => ()): PlaySwaggerConfig = {
+    val swaggerConfig = new PlaySwaggerConfig()
+    swaggerConfig setBasePath "/api"
+    swaggerConfig setHost "127.0.0.1"
+    swaggerConfig setVersion "beta"
+    swaggerConfig setTitle "title"
+    swaggerConfig setCacheMaxAge 60
+    setup(swaggerConfig)
+    PlayConfigFactory.setConfig(swaggerConfig)
+    ScannerFactory.setScanner(new PlayApiScanner())
+    RouteFactory.setRoute(new RouteWrapper(routesList.asJava))
+    ApiListingCache.reset()
+    swaggerConfig
+  }
+
+  // a scanner that holds the warm-up until released
+  class SlowScanner extends PlayApiScanner {
+    val release = new CountDownLatch(1)
+
+    override def classes(): java.util.Set[Class[_]] = {
+      release.await(10, TimeUnit.SECONDS)
+      super.classes()
+    }
+  }
+
+  // a scanner whose first scan fails with the given error
+  class FailingScanner(error: Throwable) extends PlayApiScanner {
+    val failed = new AtomicBoolean()
+
+    override def classes(): java.util.Set[Class[_]] = {
+      if (failed.compareAndSet(false, true)) throw error
+      super.classes()
+    }
+  }
+
+  "ApiHelpController" should {
+
+    "answer the listing with its validators and Cache-Control" in {
+      configure()
+      val result = new ApiHelpController().getResources(FakeRequest(GET, "/api-docs.json"))
+
+      status(result) must beEqualTo(OK)
+      header(ETAG, result) must beSome
+      header(LAST_MODIFIED, result) must beSome
+      header(CACHE_CONTROL, result) must beSome("max-age=60")
+      contentAsString(result) must contain("/dog")
+    }
+
+    "answer 304 when If-None-Match holds the current ETag" in {
+      configure()
+      val controller = new ApiHelpController()
+      val etag = header(ETAG, controller.getResources(FakeRequest(GET, "/api-docs.json"))).get
+
+      val result = controller.getResources(FakeRequest(GET, "/api-docs.json").withHeaders(IF_NONE_MATCH -> etag))
+      status(result) must beEqualTo(NOT_MODIFIED)
+      header(ETAG, result) must beSome(etag)
+      contentAsBytes(result) must beEmpty
+
+      val other = controller.getResources(FakeRequest(GET, "/api-docs.json").withHeaders(IF_NONE_MATCH -> "\"other\""))
+      status(other) must beEqualTo(OK)
+    }
+
+    "answer 304 when the listing hasn't changed since If-Modified-Since" in {
+      configure()
+      val controller = new ApiHelpController()
+      val lastModified = header(LAST_MODIFIED, controller.getResource("/dog")(FakeRequest(GET, "/api-docs.json/dog"))).get
+
+      val result = controller.getResource("/dog")(FakeRequest(GET, "/api-docs.json/dog").withHeaders(IF_MODIFIED_SINCE -> lastModified))
+      status(result) must beEqualTo(NOT_MODIFIED)
+
+      val earlier = controller.getResource("/dog")(FakeRequest(GET, "/api-docs.json/dog")
+        .withHeaders(IF_MODIFIED_SINCE -> "Thu, 01 Jan 1970 00:00:00 GMT"))
+      status(earlier) must beEqualTo(OK)
+    }
+
+    "leave validators and Cache-Control off error responses" in {
+      configure { config =>
+        config setRenderLimit 1
+        config setRenderQueue 0
+      }
+      val controller = new ApiHelpController()
+      // the slot stays taken until the body of this listing is sent
+      val streamed = Await.result(controller.getResource("/dog")(FakeRequest(GET, "/api-docs.json/dog")), 5.seconds)
+
+      val result = controller.getResource("/cat")(FakeRequest(GET, "/api-docs.json/cat"))
+      status(result) must beEqualTo(SERVICE_UNAVAILABLE)
+      header(RETRY_AFTER, result) must beSome
+      header(ETAG, result) must beNone
+      header(LAST_MODIFIED, result) must beNone
+      header(CACHE_CONTROL, result) must beNone
+
+      streamed.header.headers.get(ETAG) must beSome
+      Await.result(streamed.body |>>> Iteratee.ignore[Array[Byte]], 5.seconds)
+      status(controller.getResource("/cat")(FakeRequest(GET, "/api-docs.json/cat"))) must beEqualTo(OK)
+    }
+
+    "answer 503 with Retry-After while the warm-up is still running" in {
+      configure(_ setWarmUpTimeout 50)
+      val scanner = new SlowScanner
+      ScannerFactory.setScanner(scanner)
+      val warmUp = ApiListingCache.warmUp("")
+      try {
+        val result = new ApiHelpController().getResources(FakeRequest(GET, "/api-docs.json"))
+        status(result) must beEqualTo(SERVICE_UNAVAILABLE)
+        header(RETRY_AFTER, result) must beSome
+        header(ETAG, result) must beNone
+        header(CACHE_CONTROL, result) must beNone
+      } finally {
+        scanner.release.countDown()
+      }
+      Await.ready(warmUp, 10.seconds)
+      status(new ApiHelpController().getResources(FakeRequest(GET, "/api-docs.json"))) must beEqualTo(OK)
+    }
+
+    "wait for the warm-up no longer than swagger.warmup.timeout" in {
+      configure(_ setWarmUpTimeout 300)
+      val scanner = new SlowScanner
+      ScannerFactory.setScanner(scanner)
+      val warmUp = ApiListingCache.warmUp("")
+      try {
+        val started = System.nanoTime
+        status(new ApiHelpController().getResources(FakeRequest(GET, "/api-docs.json"))) must beEqualTo(SERVICE_UNAVAILABLE)
+        val waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime - started)
+        waited must beBetween(250L, 5000L)
+      } finally {
+        scanner.release.countDown()
+      }
+      Await.ready(warmUp, 10.seconds)
+      ok
+    }
+
+    "answer the listing once a slow warm-up completes within the timeout" in {
+      configure(_ setWarmUpTimeout 5000)
+      val scanner = new SlowScanner
+      ScannerFactory.setScanner(scanner)
+      ApiListingCache.warmUp("")
+      val result = new ApiHelpController().getResources(FakeRequest(GET, "/api-docs.json"))
+      Thread.sleep(100)
+      result.isCompleted must beFalse
+      scanner.release.countDown()
+
+      status(result) must beEqualTo(OK)
+      contentAsString(result) must contain("/dog")
+    }
+
+    "load the listing again after a failed warm-up" in {
+      configure(_ setWarmUpTimeout 5000)
+      ScannerFactory.setScanner(new FailingScanner(new IllegalStateException("scan failed")))
+      Await.ready(ApiListingCache.warmUp(""), 10.seconds)
+
+      val result = new ApiHelpController().getResources(FakeRequest(GET, "/api-docs.json"))
+      status(result) must beEqualTo(OK)
+      contentAsString(result) must contain("/dog")
+    }
+
+    "not hang when the warm-up dies of a linkage error" in {
+      configure(_ setWarmUpTimeout 5000)
+      ScannerFactory.setScanner(new FailingScanner(new NoClassDefFoundError("testdata/Missing")))
+      val warmUp = ApiListingCache.warmUp("")
+
+      Await.ready(warmUp, 10.seconds).value.exists(_.isFailure) must beTrue
+      val result = new ApiHelpController().getResources(FakeRequest(GET, "/api-docs.json"))
+      Await.result(result, 10.seconds).header.status must beEqualTo(OK)
+    }
+  }
+}
@@ -1,23 +1,29 @@
 import java.io.File
+import java.util.concurrent.atomic.AtomicInteger
 
 import io.swagger.config.ScannerFactory
-import io.swagger.models.{ModelImpl, HttpMethod}
+import io.swagger.models.{ComposedModel, ModelImpl, HttpMethod, Operation, RefModel, Response, Swagger}
 import io.swagger.models.parameters.{QueryParameter, BodyParameter, PathParameter}
-import io.swagger.models.properties.{RefProperty, ArrayProperty}
+import io.swagger.models.properties.{RefProperty, ArrayProperty, StringProperty}
 import play.modules.swagger._
 import org.specs2.mutable._
 import org.specs2.mock.Mockito
-import play.api.Logger
+import play.api.{Configuration, Logger}
 import io.swagger.util.Json
 import scala.collection.JavaConversions._
 import scala.collection.JavaConverters._
 import play.routes.compiler.{ Route => PlayRoute }
+import scala.concurrent.{Await, Future}
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
 
 class PlayApiListingCacheSpec extends Specification with Mockito {
 
+  // examples share the cached listing
+  sequential
+
   // set up mock for Play Router
-  val routesList = {
-    play.routes.compiler.RoutesFileParser.parseContent("""
+  val routesContent = """
 POST /api/document/:settlementId/files/:fileId/accept testdata.DocumentController.accept(settlementId:String,fileId:String)
 GET /api/search testdata.SettlementsSearcherController.search(personalNumber:String,propertyId:String)
 GET /api/pointsofinterest testdata.PointOfInterestController.list(eastingMin:Double,northingMin:Double,eastingMax:Double,northingMax:Double)
@@ -29,21 +35,15 @@ PUT /api/cat @testdata.CatController.add1
 GET /api/fly testdata.FlyController.list
 PUT /api/dog testdata.DogController.add1
 PUT /api/dog/:id testdata.DogController.add0(id:String)
-    """, new File("")).right.get.collect {
+    """
+
+  val routesList = {
+    play.routes.compiler.RoutesFileParser.parseContent(routesContent, new File("")).right.get.collect {
       case (route: PlayRoute) =>
-        val routeName = s"${route.call.packageName}.${route.call.controller}$$.${route.call.method}"
         route
     }
   }
 
-  val routesRules = Map(routesList map 
-  { route =>
-    {
-      val routeName = s"${route.call.packageName}.${route.call.controller}$$.${route.call.method}"
-      routeName -> route
-    }
-  } : _*)
-
   val apiVersion = "test1"
   val basePath = "/api"
 
@@ -58,12 +58,13 @@ PUT /api/dog/:id testdata.DogController.add0(id:String)
   swaggerConfig setTermsOfServiceUrl "http://termsOfServiceUrl"
   swaggerConfig setLicense "license"
   swaggerConfig setLicenseUrl "http://licenseUrl"
+  swaggerConfig setFilterCacheSize 2
 
   PlayConfigFactory.setConfig(swaggerConfig)
 
   var scanner = new PlayApiScanner()
   ScannerFactory.setScanner(scanner)
-  val route = new RouteWrapper(routesRules)
+  val route = new RouteWrapper(routesList)
   RouteFactory.setRoute(route)
 
   "ApiListingCache" should {
@@ -194,6 +195,249 @@ PUT /api/dog/:id testdata.DogController.add0(id:String)
       dogDef.getProperties.containsKey("id") must beTrue
       dogDef.getProperties.containsKey("name") must beTrue
     }
+
+    "serve resource listings from the path index" in {
+      val docRoot = ""
+      val dogs = ApiListingCache.resource(docRoot, "/dog", "127.0.0.1")
+
+      dogs must beSome
+      dogs.get.getHost must beEqualTo("127.0.0.1")
+      dogs.get.getPaths.keySet.asScala must beEqualTo(Set("/dog", "/dog/{id}"))
+      dogs.get.getDefinitions.keySet.asScala must contain("Dog")
+      dogs.get.getDefinitions.keySet.asScala must not contain("Cat")
+
+      ApiListingCache.resource(docRoot, "/dog", "127.0.0.1").get.getPaths.get("/dog") must be(dogs.get.getPaths.get("/dog"))
+      ApiListingCache.listing(docRoot, "127.0.0.1").get.getPaths.size must beEqualTo(7)
+    }
+
+    "keep definitions referenced through path parameters, composed and map valued models" in {
+      val petsPath = new io.swagger.models.Path()
+        .get(new Operation().response(200, new Response().schema(new RefProperty("Pet"))))
+      petsPath.addParameter(new BodyParameter().schema(new RefModel("Owner")))
+      val swagger = new Swagger()
+        .path("/pets", petsPath)
+        .path("/stores", new io.swagger.models.Path()
+          .get(new Operation().response(200, new Response().schema(new RefProperty("Store")))))
+      val pet = new ComposedModel()
+      pet.setInterfaces(List(new RefModel("Named")).asJava)
+      pet.setChild(new ModelImpl().property("tags", new RefProperty("Tag")))
+      swagger.addDefinition("Pet", pet)
+      swagger.addDefinition("Named", new ModelImpl())
+      swagger.addDefinition("Tag", new ModelImpl())
+      swagger.addDefinition("Owner", new ModelImpl().additionalProperties(new RefProperty("Address")))
+      swagger.addDefinition("Address", new ModelImpl())
+      swagger.addDefinition("Store", new ModelImpl())
+
+      val pets = new ApiListingIndex(swagger).resource("/pets")
+
+      pets.getDefinitions.keySet.asScala.toSet must beEqualTo(Set("Pet", "Named", "Tag", "Owner", "Address"))
+    }
+
+    "document every route of an action bound to several routes" in {
+      val dogsRoute = play.routes.compiler.RoutesFileParser.parseContent("""
+GET /api/dogs testdata.DogController.list
+      """, new File("")).right.get.collect {
+        case (route: PlayRoute) => route
+      }
+      RouteFactory.setRoute(new RouteWrapper(routesList ++ dogsRoute))
+      try {
+        val swagger = new PlayReader(null).read(Set[Class[_]](testdata.DogController.getClass).asJava)
+
+        swagger.getPath("/dog").getGet.getOperationId must beEqualTo("listDogs")
+        swagger.getPath("/dogs").getGet.getOperationId must beEqualTo("listDogs_2")
+
+        val operationIds = swagger.getPaths.values.asScala.flatMap(_.getOperations.asScala).map(_.getOperationId).toList
+        operationIds.distinct must beEqualTo(operationIds)
+      } finally {
+        RouteFactory.setRoute(route)
+      }
+    }
+
+    "read controllers in parallel into the same spec" in {
+      val classes = new PlayApiScanner().classes()
+      val serial = new PlayReader(null).read(classes, 1)
+      val parallel = new PlayReader(null).read(classes, 4)
+
+      toJsonString(parallel) must beEqualTo(toJsonString(serial))
+    }
+
+    "reuse the listing of unchanged controllers on rescan" in {
+      val classes = new PlayApiScanner().classes()
+      val serial = new PlayReader(null).read(classes, 1)
+
+      swaggerConfig setIncremental true
+      try {
+        val first = new PlayReader(null).read(classes, 1)
+        val second = new PlayReader(null).read(classes, 4)
+
+        toJsonString(first) must beEqualTo(toJsonString(serial))
+        toJsonString(second) must beEqualTo(toJsonString(serial))
+        second.getPath("/dog").getPut must be(first.getPath("/dog").getPut)
+      } finally {
+        swaggerConfig setIncremental false
+        ControllerFragments.getInstance().clear()
+      }
+    }
+
+    "keep shared models unchanged when a parameter merges allowable values" in {
+      val sizesRoute = play.routes.compiler.RoutesFileParser.parseContent("""
+GET /api/dog/sizes testdata.DogController.findBySize(sizes: List[String])
+      """, new File("")).right.get.collect {
+        case (route: PlayRoute) => route
+      }
+      RouteFactory.setRoute(new RouteWrapper(routesList ++ sizesRoute))
+      swaggerConfig setSharedModelCache true
+      try {
+        val classes = Set[Class[_]](testdata.DogController.getClass).asJava
+        val first = new PlayReader(null).read(classes)
+        val second = new PlayReader(null).read(classes)
+
+        val sizes = second.getPath("/dog/sizes").getGet.getParameters.get(0).asInstanceOf[QueryParameter]
+        sizes.getItems.asInstanceOf[StringProperty].getEnum.asScala must beEqualTo(Seq("small", "medium", "large"))
+        toJsonString(second) must beEqualTo(toJsonString(first))
+        second.getDefinitions.get("Dog") must be(first.getDefinitions.get("Dog"))
+
+        val sizesType = testdata.DogController.getClass.getMethods.find(_.getName == "findBySize").get.getGenericParameterTypes()(0)
+        ModelCache.getShared.readAsProperty(sizesType).asInstanceOf[ArrayProperty].getItems.asInstanceOf[StringProperty].getEnum must beNull
+      } finally {
+        swaggerConfig setSharedModelCache false
+        ModelCache.getShared.clear()
+        RouteFactory.setRoute(route)
+      }
+    }
+
+    "build the listing once for concurrent callers" in {
+      ApiListingCache.reset()
+      val scans = new AtomicInteger()
+      ScannerFactory.setScanner(new PlayApiScanner() {
+        override def classes(): java.util.Set[Class[_]] = {
+          scans.incrementAndGet()
+          Thread.sleep(200)
+          super.classes()
+        }
+      })
+      try {
+        val listings = Await.result(Future.sequence((1 to 8).map(_ => Future(ApiListingCache.listing("", "127.0.0.1")))), 10.seconds)
+
+        scans.get must beEqualTo(1)
+        listings.map(_.get.getPaths.size).distinct must beEqualTo(Seq(7))
+      } finally {
+        ScannerFactory.setScanner(scanner)
+      }
+    }
+
+    "fail the load for every caller when a controller can't be linked" in {
+      ApiListingCache.reset()
+      ScannerFactory.setScanner(new PlayApiScanner() {
+        override def classes(): java.util.Set[Class[_]] = throw new NoClassDefFoundError("testdata/Missing")
+      })
+      try {
+        Await.result(Future(ApiListingCache.listing("", "127.0.0.1")), 10.seconds) must throwA[java.util.concurrent.ExecutionException]
+        Await.ready(ApiListingCache.warmUp(""), 10.seconds).value.exists(_.isFailure) must beTrue
+      } finally {
+        ScannerFactory.setScanner(scanner)
+      }
+      ApiListingCache.listing("", "127.0.0.1").get.getPaths.size must beEqualTo(7)
+    }
+
+    "wait for a running warm-up without holding a thread per request" in {
+      ApiListingCache.reset()
+      val release = new java.util.concurrent.CountDownLatch(1)
+      ScannerFactory.setScanner(new PlayApiScanner() {
+        override def classes(): java.util.Set[Class[_]] = {
+          release.await(10, java.util.concurrent.TimeUnit.SECONDS)
+          super.classes()
+        }
+      })
+      try {
+        ApiListingCache.warmUp("")
+        val threads = Thread.activeCount
+        val waiting = (1 to 200).map(_ => ApiListingCache.whenReady("", 10.seconds))
+
+        Await.result(ApiListingCache.whenReady("", 50.millis), 5.seconds) must beFalse
+        Thread.activeCount must beLessThan(threads + 10)
+        release.countDown()
+        Await.result(Future.sequence(waiting), 10.seconds).forall(identity) must beTrue
+      } finally {
+        ScannerFactory.setScanner(scanner)
+      }
+    }
+
+    "swap in a refreshed listing" in {
+      val before = ApiListingCache.index("").get
+      ApiListingCache.refresh("")
+      val after = ApiListingCache.index("").get
+
+      after must not(be(before))
+      after.contentHash must beEqualTo(before.contentHash)
+    }
+
+    "hash the content of the cached listing" in {
+      val index = ApiListingCache.index("").get
+      val swagger = Json.mapper().readValue(toJsonString(index.swagger), classOf[Swagger])
+
+      new ApiListingIndex(swagger).contentHash must beEqualTo(index.contentHash)
+      new ApiListingIndex(swagger.basePath("/v2")).contentHash must not(beEqualTo(index.contentHash))
+    }
+
+    "serve a listing generated at build time without scanning" in {
+      val dir = java.nio.file.Files.createTempDirectory("swagger-spec").toFile
+      java.nio.file.Files.write(new File(dir, "routes").toPath, routesContent.getBytes("UTF-8"))
+      val classLoader = new java.net.URLClassLoader(Array(dir.toURI.toURL), getClass.getClassLoader)
+      val config = Configuration.from(Map("swagger.api.basepath" -> basePath, "swagger.api.host" -> "127.0.0.1"))
+      val generated = Json.mapper().readValue(SwaggerSpecGenerator.generate(config, classLoader, new File(dir, "swagger.json")), classOf[Swagger])
+
+      val scans = new AtomicInteger()
+      swaggerConfig setSpecResource "swagger.json"
+      PlayConfigFactory.setConfig(swaggerConfig)
+      ScannerFactory.setScanner(new PlayApiScanner() {
+        override def classes(): java.util.Set[Class[_]] = {
+          scans.incrementAndGet()
+          super.classes()
+        }
+      })
+      RouteFactory.setRoute(route)
+      ApiListingCache.reset()
+      try {
+        val swagger = ApiListingCache.listing("", "127.0.0.1")
+
+        scans.get must beEqualTo(0)
+        swagger.get.getPaths.size must beEqualTo(7)
+        toJsonString(swagger.get.getPaths) must beEqualTo(toJsonString(generated.getPaths))
+        toJsonString(swagger.get.getDefinitions) must beEqualTo(toJsonString(generated.getDefinitions))
+      } finally {
+        swaggerConfig setSpecResource null
+        ScannerFactory.setScanner(scanner)
+        ApiListingCache.reset()
+      }
+    }
+
+    "reuse listings filtered for the same cache key" in {
+      var filtered = 0
+      def filter = {
+        filtered += 1
+        new Swagger()
+      }
+
+      val admin = FilteredListingCache.get("admin", "v1", "127.0.0.1", None)(filter)
+      FilteredListingCache.get("admin", "v1", "127.0.0.1", None)(filter) must be(admin)
+      filtered must beEqualTo(1)
+
+      FilteredListingCache.get("user", "v1", "127.0.0.1", None)(filter)
+      FilteredListingCache.get("guest", "v1", "127.0.0.1", None)(filter)
+      FilteredListingCache.get("admin", "v1", "127.0.0.1", None)(filter) must not(be(admin))
+      filtered must beEqualTo(4)
+    }
+
+    "give each host its own view of the listing" in {
+      val docRoot = ""
+      val local = ApiListingCache.listing(docRoot, "127.0.0.1")
+      val remote = ApiListingCache.listing(docRoot, "api.example.com")
+
+      local.get.getHost must beEqualTo("127.0.0.1")
+      remote.get.getHost must beEqualTo("api.example.com")
+      remote.get.getPaths.get("/dog") must be(local.get.getPaths.get("/dog"))
+    }
   }
 
   def toJsonString(data: Any): String = {
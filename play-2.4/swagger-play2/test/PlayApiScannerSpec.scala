@@ -4,6 +4,7 @@ import play.modules.swagger._
 import org.specs2.mutable._
 import org.specs2.mock.Mockito
 import scala.collection.JavaConversions._
+import scala.collection.JavaConverters._
 import play.modules.swagger.util.SwaggerContext
 import play.routes.compiler.{ Route => PlayRoute }
 
@@ -21,22 +22,12 @@ PUT /api/dog testdata.DogController.add1
 PUT /api/dog/:id testdata.DogController.add0(id:String)
                                                        """, new File("")).right.get.collect {
       case (route: PlayRoute) => {
-        val routeName = s"${route.call.packageName}.${route.call.controller}$$.${route.call.method}"
         route
       }
     }
   }
 
-  val routesRules = Map(routesList map 
-  { route =>
-    {
-      val routeName = s"${route.call.packageName}.${route.call.controller}$$.${route.call.method}"
-      routeName -> route
-    }
-  } : _*)
-
-
-  val route = new RouteWrapper(routesRules)
+  val route = new RouteWrapper(routesList)
   RouteFactory.setRoute(route)
 
   "PlayApiScanner" should {
@@ -47,6 +38,43 @@ PUT /api/dog/:id testdata.DogController.add0(id:String)
       classes.contains(SwaggerContext.loadClass("testdata.DogController")) must beTrue
       classes.contains(SwaggerContext.loadClass("testdata.CatController")) must beTrue
     }
+
+    "find the same API classes from their bytecode" in {
+      val previous = PlayConfigFactory.getConfig
+      val config = new PlaySwaggerConfig()
+      config setBytecodeScan true
+      PlayConfigFactory.setConfig(config)
+      try {
+        new PlayApiScanner().classes() must beEqualTo(Set(
+          SwaggerContext.loadClass("testdata.DogController"),
+          SwaggerContext.loadClass("testdata.CatController")).asJava)
+      } finally {
+        PlayConfigFactory.setConfig(previous)
+      }
+    }
+
+    "check classes by reflection when their class files can't be parsed" in {
+      val previous = PlayConfigFactory.getConfig
+      val config = new PlaySwaggerConfig()
+      config setBytecodeScan true
+      PlayConfigFactory.setConfig(config)
+      // serves unreadable class files for the test controllers, classes still come from its parent
+      val loader = new ClassLoader(getClass.getClassLoader) {
+        override def getResourceAsStream(name: String): java.io.InputStream = {
+          if (name.startsWith("testdata/")) new java.io.ByteArrayInputStream("not a class file".getBytes("UTF-8"))
+          else super.getResourceAsStream(name)
+        }
+      }
+      SwaggerContext.registerClassLoader(loader)
+      try {
+        new PlayApiScanner().classes() must beEqualTo(Set(
+          SwaggerContext.loadClass("testdata.DogController"),
+          SwaggerContext.loadClass("testdata.CatController")).asJava)
+      } finally {
+        SwaggerContext.unregisterClassLoader(loader)
+        PlayConfigFactory.setConfig(previous)
+      }
+    }
   }
 
 }
@@ -0,0 +1,85 @@
+import org.specs2.mutable._
+import play.api.libs.iteratee.{Enumerator, Iteratee}
+import play.api.mvc.{Result, Results}
+import play.modules.swagger.RenderAdmission.Gate
+import play.modules.swagger.{PlayConfigFactory, PlaySwaggerConfig, RenderAdmission}
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Promise}
+
+class RenderAdmissionSpec extends Specification {
+
+  "RenderAdmission" should {
+
+    "admit up to the limit and turn away requests beyond the queue" in {
+      val gate = new Gate(1, 0, 1000)
+
+      gate.enter().value must beSome(beSuccessfulTry(true))
+      gate.enter().value must beSome(beSuccessfulTry(false))
+      gate.exit()
+      gate.enter().value must beSome(beSuccessfulTry(true))
+    }
+
+    "let queued requests wait for a free slot" in {
+      val gate = new Gate(1, 1, 5000)
+      gate.enter().value must beSome(beSuccessfulTry(true))
+
+      val queued = gate.enter()
+      queued.isCompleted must beFalse
+      gate.enter().value must beSome(beSuccessfulTry(false))
+      gate.exit()
+
+      Await.result(queued, 5.seconds) must beTrue
+    }
+
+    "give up waiting after the timeout" in {
+      val gate = new Gate(1, 1, 50)
+      gate.enter().value must beSome(beSuccessfulTry(true))
+
+      Await.result(gate.enter(), 5.seconds) must beFalse
+      gate.exit()
+      gate.enter().value must beSome(beSuccessfulTry(true))
+    }
+
+    "hold the slot until the body of the result is sent" in {
+      val previous = PlayConfigFactory.getConfig
+      val config = new PlaySwaggerConfig()
+      config.setRenderLimit(1)
+      config.setRenderQueue(1)
+      config.setRenderTimeout(500)
+      PlayConfigFactory.setConfig(config)
+      def admit(result: => Result) = Await.result(RenderAdmission.admit(result)(Results.ServiceUnavailable), 5.seconds)
+      try {
+        val sent = Promise[Unit]()
+        val streamed = admit(Results.Ok.chunked(Enumerator.flatten(sent.future.map(_ => Enumerator("listing")))))
+
+        admit(Results.Ok).header.status must beEqualTo(503)
+        sent.success(())
+        Await.result(streamed.body |>>> Iteratee.ignore[Array[Byte]], 5.seconds)
+        admit(Results.Ok).header.status must beEqualTo(200)
+      } finally {
+        PlayConfigFactory.setConfig(previous)
+      }
+    }
+
+    "free the slot of a result whose body is never sent" in {
+      val previous = PlayConfigFactory.getConfig
+      val config = new PlaySwaggerConfig()
+      config.setRenderLimit(1)
+      config.setRenderQueue(0)
+      config.setRenderHold(200)
+      PlayConfigFactory.setConfig(config)
+      def admit(result: => Result) = Await.result(RenderAdmission.admit(result)(Results.ServiceUnavailable), 5.seconds)
+      try {
+        admit(Results.Ok("never sent")).header.status must beEqualTo(200)
+        admit(Results.Ok).header.status must beEqualTo(503)
+
+        Thread.sleep(500)
+        admit(Results.Ok).header.status must beEqualTo(200)
+      } finally {
+        PlayConfigFactory.setConfig(previous)
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+import java.io.ByteArrayInputStream
+import java.util.concurrent.Executors
+import java.util.zip.GZIPInputStream
+
+import io.swagger.models.Swagger
+import io.swagger.util.Json
+import org.specs2.mutable._
+import play.api.libs.iteratee.Iteratee
+import play.modules.swagger.{ListingStream, PlayConfigFactory, PlaySwaggerConfig, RenderedListingCache, SwaggerDispatcher}
+
+import scala.collection.JavaConverters._
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.{Await, ExecutionContext, Future}
+import scala.concurrent.duration._
+import scala.io.Source
+import scala.xml.XML
+
+class RenderedListingCacheSpec extends Specification {
+
+  sequential
+
+  "RenderedListingCache" should {
+
+    "serialize a listing only once per host and format" in {
+      RenderedListingCache.clear()
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+
+      val first = RenderedListingCache.get(swagger, "v1", "127.0.0.1", RenderedListingCache.JSON, RenderedListingCache.IDENTITY)
+      val second = RenderedListingCache.get(swagger, "v1", "127.0.0.1", RenderedListingCache.JSON, RenderedListingCache.IDENTITY)
+
+      new String(first, "UTF-8") must beEqualTo(Json.pretty(swagger))
+      second must be(first)
+    }
+
+    "keep compressed variants of the same bytes" in {
+      RenderedListingCache.clear()
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+
+      val plain = RenderedListingCache.get(swagger, "v1", "127.0.0.1", RenderedListingCache.YAML, RenderedListingCache.IDENTITY)
+      val gzipped = RenderedListingCache.get(swagger, "v1", "127.0.0.1", RenderedListingCache.YAML, RenderedListingCache.GZIP)
+
+      val unzipped = Source.fromInputStream(new GZIPInputStream(new ByteArrayInputStream(gzipped)), "UTF-8").mkString
+      unzipped must beEqualTo(new String(plain, "UTF-8"))
+    }
+
+    "drop rendered bytes when cleared" in {
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+      val first = RenderedListingCache.get(swagger, "v1", "127.0.0.1", RenderedListingCache.JSON, RenderedListingCache.IDENTITY)
+      RenderedListingCache.clear()
+
+      val updated = new Swagger().host("127.0.0.1").basePath("/v2")
+      val second = RenderedListingCache.get(updated, "v2", "127.0.0.1", RenderedListingCache.JSON, RenderedListingCache.IDENTITY)
+
+      new String(second, "UTF-8") must contain("/v2")
+      second must not(be(first))
+    }
+
+    "stream the rendered bytes in bounded chunks" in {
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+      (0 until 2000).foreach(i => swagger.path("/resource" + i, new io.swagger.models.Path()))
+
+      val chunks = Await.result(ListingStream.enumerate(swagger, RenderedListingCache.JSON) |>>> Iteratee.getChunks[Array[Byte]], 10.seconds)
+
+      chunks.forall(_.length <= ListingStream.ChunkSize) must beTrue
+      chunks.flatten.toArray must beEqualTo(RenderedListingCache.render(swagger, RenderedListingCache.JSON))
+    }
+
+    "stream more listings at once than the reading pool has threads" in {
+      // well over the chunks the queue holds, so the writers wait for the readers
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+      (0 until 20000).foreach(i => swagger.path("/resource" + i, new io.swagger.models.Path()))
+      val expected = RenderedListingCache.render(swagger, RenderedListingCache.JSON)
+      val pool = Executors.newFixedThreadPool(2)
+      val reading = ExecutionContext.fromExecutorService(pool)
+      try {
+        val streams = (0 until 4).map { _ =>
+          ListingStream.enumerate(swagger, RenderedListingCache.JSON)(reading) |>>> Iteratee.getChunks[Array[Byte]]
+        }
+        val results = Await.result(Future.sequence(streams)(implicitly, reading), 10.seconds)
+
+        results.map(_.flatten.toArray.toSeq) must beEqualTo(Seq.fill(4)(expected.toSeq))
+      } finally {
+        pool.shutdownNow()
+      }
+    }
+
+    "serialize no more listings at once than the stream threads" in {
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+      (0 until 20000).foreach(i => swagger.path("/resource" + i, new io.swagger.models.Path()))
+      val expected = RenderedListingCache.render(swagger, RenderedListingCache.JSON)
+      val previous = PlayConfigFactory.getConfig
+      val config = new PlaySwaggerConfig()
+      config.setStreamThreads(2)
+      PlayConfigFactory.setConfig(config)
+      SwaggerDispatcher.reset()
+      def writers = Thread.getAllStackTraces.keySet.asScala.count(_.getName.startsWith("swagger-blocking-"))
+      try {
+        val before = writers
+        val streams = (0 until 6).map { _ =>
+          ListingStream.enumerate(swagger, RenderedListingCache.JSON) |>>> Iteratee.getChunks[Array[Byte]]
+        }
+        writers must beLessThanOrEqualTo(before + 2)
+        val results = Await.result(Future.sequence(streams), 10.seconds)
+
+        results.map(_.flatten.toArray.toSeq) must beEqualTo(Seq.fill(6)(expected.toSeq))
+      } finally {
+        PlayConfigFactory.setConfig(previous)
+        SwaggerDispatcher.reset()
+      }
+    }
+
+    "render compact JSON" in {
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+
+      new String(RenderedListingCache.render(swagger, RenderedListingCache.COMPACT_JSON), "UTF-8") must beEqualTo(Json.mapper().writeValueAsString(swagger))
+    }
+
+    "render XML from the JSON tree of the listing" in {
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api").produces("application/json").produces("application/xml")
+      swagger.path("/pets/{id}", new io.swagger.models.Path())
+
+      val xml = XML.loadString(new String(RenderedListingCache.render(swagger, RenderedListingCache.XML), "UTF-8"))
+
+      xml.label must beEqualTo("swagger")
+      (xml \ "basePath").text must beEqualTo("/api")
+      (xml \ "produces").map(_.text) must beEqualTo(Seq("application/json", "application/xml"))
+      (xml \ "paths" \ "entry").map(_ \ "@name").map(_.text) must beEqualTo(Seq("/pets/{id}"))
+    }
+
+    "keep rendered XML apart from other formats" in {
+      RenderedListingCache.clear()
+      val swagger = new Swagger().host("127.0.0.1").basePath("/api")
+
+      val json = RenderedListingCache.get(swagger, "v1", "127.0.0.1", RenderedListingCache.JSON, RenderedListingCache.IDENTITY)
+      val xml = RenderedListingCache.get(swagger, "v1", "127.0.0.1", RenderedListingCache.XML, RenderedListingCache.IDENTITY)
+
+      new String(xml, "UTF-8") must startWith("<?xml")
+      RenderedListingCache.cached("v1", "127.0.0.1", RenderedListingCache.XML, RenderedListingCache.IDENTITY) must beSome(be(xml))
+      json must not(be(xml))
+    }
+  }
+}
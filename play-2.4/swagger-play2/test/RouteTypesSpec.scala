@@ -0,0 +1,51 @@
+import io.swagger.util.Json
+import org.specs2.mutable._
+import play.modules.swagger.RouteTypes
+
+class RouteTypesSpec extends Specification {
+
+  val classLoader = getClass.getClassLoader
+
+  val types = Json.mapper().getTypeFactory
+
+  def resolve(typeName: String) = RouteTypes.resolve(typeName, classLoader)
+
+  "RouteTypes" should {
+
+    "resolve Scala value types and options to boxed types" in {
+      resolve("Int") must beEqualTo(types.constructType(classOf[java.lang.Integer]))
+      resolve("Option[Long]").getRawClass must beEqualTo(classOf[Option[_]])
+      resolve("Option[Long]").containedType(0) must beEqualTo(types.constructType(classOf[java.lang.Long]))
+      resolve(" scala.Option[ Boolean ] ") must beEqualTo(resolve("Option[Boolean]"))
+    }
+
+    "resolve nested collections and maps" in {
+      val listOfOptions = resolve("List[Option[Int]]")
+      listOfOptions.getRawClass must beEqualTo(classOf[java.util.List[_]])
+      listOfOptions.getContentType must beEqualTo(resolve("Option[Int]"))
+
+      val map = resolve("Map[String, Seq[Double]]")
+      map.getRawClass must beEqualTo(classOf[java.util.Map[_, _]])
+      map.getKeyType must beEqualTo(types.constructType(classOf[String]))
+      map.getContentType.getContentType must beEqualTo(types.constructType(classOf[java.lang.Double]))
+
+      resolve("Set[java.util.UUID]").getRawClass must beEqualTo(classOf[java.util.Set[_]])
+      resolve("Array[String]").isArrayType must beTrue
+    }
+
+    "resolve class names with the given class loader" in {
+      resolve("testdata.Dog").getRawClass must beEqualTo(classOf[testdata.Dog])
+      resolve("java.util.List<testdata.Dog>").getContentType.getRawClass must beEqualTo(classOf[testdata.Dog])
+    }
+
+    "give no type for unknown classes and malformed names" in {
+      resolve("testdata.Missing") must beNull
+      resolve("Option[Int") must beNull
+      resolve("Map[String]") must beNull
+    }
+
+    "resolve each type name once" in {
+      resolve("Seq[Option[Long]]") must be(resolve("Seq[Option[Long]]"))
+    }
+  }
+}
@@ -0,0 +1,46 @@
+import java.net.{URL, URLClassLoader}
+import java.util.concurrent.atomic.AtomicInteger
+
+import org.specs2.mutable._
+import play.modules.swagger.util.SwaggerContext
+
+class SwaggerContextSpec extends Specification {
+
+  sequential
+
+  class CountingClassLoader extends URLClassLoader(Array.empty[URL], getClass.getClassLoader) {
+    val lookups = new AtomicInteger()
+
+    override def loadClass(name: String, resolve: Boolean): Class[_] = {
+      lookups.incrementAndGet()
+      super.loadClass(name, resolve)
+    }
+  }
+
+  "SwaggerContext" should {
+
+    "look up a class in the registered loaders only once" in {
+      val classLoader = new CountingClassLoader
+      SwaggerContext.registerClassLoader(classLoader)
+      try {
+        SwaggerContext.loadClass("testdata.DogController") must be(SwaggerContext.loadClass("testdata.DogController"))
+        SwaggerContext.loadClass("testdata.Missing") must throwA[ClassNotFoundException]
+        SwaggerContext.loadClass("testdata.Missing") must throwA[ClassNotFoundException]
+
+        classLoader.lookups.get must beEqualTo(2)
+      } finally {
+        SwaggerContext.unregisterClassLoader(classLoader)
+      }
+    }
+
+    "look up classes again once a loader is unregistered" in {
+      val classLoader = new CountingClassLoader
+      SwaggerContext.registerClassLoader(classLoader)
+      SwaggerContext.loadClass("testdata.DogController")
+      SwaggerContext.unregisterClassLoader(classLoader)
+
+      SwaggerContext.loadClass("testdata.DogController")
+      classLoader.lookups.get must beEqualTo(1)
+    }
+  }
+}
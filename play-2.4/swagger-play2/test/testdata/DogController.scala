@@ -140,6 +140,15 @@ object DogController extends Controller {
     request => Ok("test case")
   }
 
+  @ApiOperation(value = "Find Dogs by size",
+    notes = "Returns the dogs of the given sizes",
+    response = classOf[Dog],
+    responseContainer = "List",
+    httpMethod = "GET")
+  def findBySize(@ApiParam(value = "Sizes of the dogs to find", allowableValues = "small,medium,large") sizes: List[String]) = Action {
+    request => Ok("test case")
+  }
+
   @ApiOperation(value = "Method with numeric chars in name",
     notes = "get a Dog with id 33",
     httpMethod = "GET")